@@ -0,0 +1,69 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * - 매 trial 마다 새로운 H2 메모리 DB 를 띄운다.
+ * - SQL 로그는 끄고, SQL 실행 횟수는 Hibernate Statistics 로 센다.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... extraProperties) {
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties(extraProperties))
+                .run();
+    }
+
+    /**
+     * 임의 포트로 Tomcat 까지 띄운다. (HTTP 부하 테스트용)
+     * @param sources 벤치마크 전용 컨트롤러 등 추가 빈
+     */
+    public static ConfigurableApplicationContext startServlet(Class<?>[] sources, String... extraProperties) {
+        List<String> properties = new ArrayList<>(Arrays.asList(properties(extraProperties)));
+        properties.add("server.port=0");
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .sources(sources)
+                .web(WebApplicationType.SERVLET)
+                .properties(properties.toArray(new String[0]))
+                .run();
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static String[] properties(String... extraProperties) {
+        List<String> properties = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "spring.main.banner-mode=off",
+                "logging.level.root=warn",
+                "logging.level.org.hibernate.SQL=warn"));
+        properties.addAll(Arrays.asList(extraProperties));
+        return properties.toArray(new String[0]);
+    }
+
+    public static Statistics statistics(ConfigurableApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+}
@@ -0,0 +1,101 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * InitDb 방식으로 회원, 상품, 주문 데이터를 원하는 만큼 넣는다.
+ * - batchSize 건마다 flush/clear 해서 시딩 중 메모리가 늘어나지 않게 한다.
+ */
+public class BenchmarkDataSeeder {
+
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public BenchmarkDataSeeder(ConfigurableApplicationContext context, int batchSize) {
+        this.em = context.getBean(EntityManager.class);
+        this.tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        this.batchSize = batchSize;
+    }
+
+    public void seed(int members, int items, int orders, int itemsPerOrder) {
+        List<Long> memberIds = seedMembers(members);
+        List<Long> itemIds = seedItems(items);
+        seedOrders(memberIds, itemIds, orders, itemsPerOrder);
+    }
+
+    public List<Long> seedMembers(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += batchSize) {
+            int start = from;
+            int end = Math.min(from + batchSize, count);
+            tx.executeWithoutResult(status -> {
+                for (int i = start; i < end; i++) {
+                    Member member = new Member();
+                    member.setName("member" + i);
+                    member.setAddress(new Address("city" + (i % 20), "street" + i, String.valueOf(10000 + i)));
+                    em.persist(member);
+                    ids.add(member.getId());
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+        return ids;
+    }
+
+    public List<Long> seedItems(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += batchSize) {
+            int start = from;
+            int end = Math.min(from + batchSize, count);
+            tx.executeWithoutResult(status -> {
+                for (int i = start; i < end; i++) {
+                    Book book = new Book();
+                    book.setName("BOOK " + i);
+                    book.setPrice(1000 + (i % 50) * 100);
+                    book.setStockQuantity(Integer.MAX_VALUE / 2);
+                    em.persist(book);
+                    ids.add(book.getId());
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+        return ids;
+    }
+
+    public void seedOrders(List<Long> memberIds, List<Long> itemIds, int count, int itemsPerOrder) {
+        for (int from = 0; from < count; from += batchSize) {
+            int start = from;
+            int end = Math.min(from + batchSize, count);
+            tx.executeWithoutResult(status -> {
+                for (int i = start; i < end; i++) {
+                    Member member = em.find(Member.class, memberIds.get(i % memberIds.size()));
+
+                    OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+                    for (int j = 0; j < itemsPerOrder; j++) {
+                        Book book = em.find(Book.class, itemIds.get((i * itemsPerOrder + j) % itemIds.size()));
+                        orderItems[j] = OrderItem.createOrderItem(book, book.getPrice(), 1 + j);
+                    }
+
+                    Delivery delivery = new Delivery();
+                    delivery.setAddress(member.getAddress());
+                    delivery.setStatus(DeliveryStatus.READY);
+
+                    em.persist(Order.createOrder(member, delivery, orderItems));
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package jpabook.jpashop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 컨트롤러 실행 모드별 응답 시간 분포 (jpashop.web.execution.mode)
+ * - servlet : Tomcat 스레드에서 실행
+ * - bounded : 전용 고정 스레드 풀 + HikariCP 풀 크기만큼만 동시 실행
+ * - virtual : 가상 스레드 (JDK 21+, 아니면 bounded 로 실행된다)
+ *
+ * Tomcat 스레드 20개, 커넥션 10개로 띄우고
+ * 느린 쿼리(slowMs 동안 커넥션을 잡는 요청) 8 스레드와 일반 조회(/api/v2/members) 24 스레드를 섞어서 보낸다.
+ * SampleTime 결과의 p0.99 를 모드별로 비교한다. 503(거절)은 Rejected 카운터로 따로 센다.
+ *
+ * ./gradlew jmh -Pjmh.include=HandlerExecutionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class HandlerExecutionBenchmark {
+
+    @Param({"servlet", "bounded", "virtual"})
+    public String mode;
+
+    @Param({"200"})
+    public int slowMs;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI membersUri;
+    private URI slowUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startServlet(new Class<?>[]{SlowQueryController.class},
+                "jpashop.web.execution.mode=" + mode,
+                "jpashop.web.execution.acquire-timeout-ms=1000",
+                "jpashop.web.execution.packages=jpabook.jpashop.api,jpabook.jpashop.controller,jpabook.jpashop.benchmark",
+                "server.tomcat.threads.max=20",
+                "spring.datasource.hikari.maximum-pool-size=10");
+        context.getBean(JdbcTemplate.class)
+                .execute("create alias if not exists bench_sleep for \"java.lang.Thread.sleep(long)\"");
+
+        int port = BenchmarkContext.port(context);
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        membersUri = URI.create("http://localhost:" + port + "/api/v2/members");
+        slowUri = URI.create("http://localhost:" + port + "/bench/slow-query?ms=" + slowMs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Rejected {
+        public long rejected;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(24)
+    public int members(Rejected counters) throws IOException, InterruptedException {
+        return send(membersUri, counters);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(8)
+    public int slowQuery(Rejected counters) throws IOException, InterruptedException {
+        return send(slowUri, counters);
+    }
+
+    private int send(URI uri, Rejected counters) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 503) {
+            counters.rejected++;
+        }
+        return status;
+    }
+
+    /**
+     * slowMs 동안 커넥션을 잡고 있는 쿼리
+     */
+    @RestController
+    public static class SlowQueryController {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        public SlowQueryController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @GetMapping("/bench/slow-query")
+        public String slowQuery(@RequestParam("ms") long ms) {
+            jdbcTemplate.execute("call bench_sleep(" + ms + ")");
+            return "ok";
+        }
+    }
+}
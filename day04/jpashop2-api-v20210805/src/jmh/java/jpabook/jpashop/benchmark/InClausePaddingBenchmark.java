@@ -0,0 +1,88 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.repository.order.query.OrderItemQueryLoader;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IN 절 파라미터 padding 유무에 따른 실행 계획 캐시 적중률과 조회 시간 비교
+ * - 연산마다 IN 절 크기를 1 ~ maxSize 로 바꿔가며 OrderItemQueryLoader 로 조회한다.
+ * - padding 이 없으면 크기마다 실행 계획이 새로 만들어진다.
+ * - PlanCacheCounters: 측정 구간 전체의 실행 계획 캐시 hit / miss
+ *
+ * ./gradlew jmh -Pjmh.include=InClausePaddingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InClausePaddingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean padding;
+
+    @Param({"300"})
+    public int maxSize;
+
+    /**
+     * 실행 계획 캐시 크기(기본 2048)보다 IN 절 크기 종류가 많으면 padding 이 없을 때 계속 miss 가 난다.
+     */
+    @Param({"2048"})
+    public int planCacheMaxSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderItemQueryLoader orderItemQueryLoader;
+    private Statistics statistics;
+    private List<List<Long>> idLists;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=" + padding,
+                "spring.jpa.properties.hibernate.query.plan_cache_max_size=" + planCacheMaxSize);
+        orderItemQueryLoader = context.getBean(OrderItemQueryLoader.class);
+        statistics = BenchmarkContext.statistics(context);
+
+        idLists = new ArrayList<>(maxSize);
+        for (int size = 1; size <= maxSize; size++) {
+            List<Long> ids = new ArrayList<>(size);
+            for (long id = 1; id <= size; id++) {
+                ids.add(-id); //존재하지 않는 id, 실행 계획과 SQL 만 본다.
+            }
+            idLists.add(ids);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PlanCacheCounters {
+        public long planCacheHits;
+        public long planCacheMisses;
+        private int next;
+    }
+
+    @Benchmark
+    public int findOrderItemMap(PlanCacheCounters counters) {
+        List<Long> ids = idLists.get(counters.next++ % idLists.size());
+        long hitsBefore = statistics.getQueryPlanCacheHitCount();
+        long missesBefore = statistics.getQueryPlanCacheMissCount();
+
+        int size = orderItemQueryLoader.findOrderItemMap(ids).size();
+
+        counters.planCacheHits += statistics.getQueryPlanCacheHitCount() - hitsBefore;
+        counters.planCacheMisses += statistics.getQueryPlanCacheMissCount() - missesBefore;
+        return size;
+    }
+}
@@ -0,0 +1,70 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.PooledSequenceGenerator;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 식별자 생성 전략별 INSERT 처리량 비교
+ * - incrementSize = 1 : INSERT 마다 시퀀스 호출 (기존 @GeneratedValue 와 같은 왕복 횟수)
+ * - incrementSize = 50 : pooled-lo, 시퀀스 한 번 호출로 식별자 50개 확보
+ *
+ * InitDb 방식(BenchmarkDataSeeder)으로 rows 건의 회원을 넣고 전체 소요 시간을 잰다.
+ * SqlCounters 로 실제 실행된 prepare statement 수(시퀀스 호출 포함)를 같이 남긴다.
+ *
+ * ./gradlew jmh -Pjmh.include=InsertThroughputBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+    @Param({"1", "50"})
+    public int incrementSize;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private Statistics statistics;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "spring.jpa.properties." + PooledSequenceGenerator.INCREMENT_SIZE_SETTING + "=" + incrementSize,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        statistics = BenchmarkContext.statistics(context);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class SqlCounters {
+        public long statements;
+        public long entityInserts;
+    }
+
+    @Benchmark
+    public int seedMembers(SqlCounters counters) {
+        statistics.clear();
+        int inserted = new BenchmarkDataSeeder(context, batchSize).seedMembers(rows).size();
+        counters.statements += statistics.getPrepareStatementCount();
+        counters.entityInserts += statistics.getEntityInsertCount();
+        return inserted;
+    }
+}
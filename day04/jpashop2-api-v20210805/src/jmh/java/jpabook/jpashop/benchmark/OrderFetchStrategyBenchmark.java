@@ -0,0 +1,134 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderApiController;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * OrderApiController V1 ~ V6 주문 조회 전략 비교
+ * - latency: AverageTime
+ * - allocation rate: -prof gc (build.gradle 의 jmh 태스크에서 기본으로 켬)
+ * - SQL 실행 횟수: SqlCounters (측정 구간 전체의 prepare statement, 엔티티 로딩, 컬렉션 로딩 수와 연산 수)
+ *   연산 1번당 값은 statements / operations 로 구한다.
+ *
+ * 각 전략은 실제 API 처럼 읽기 전용 트랜잭션 안에서 조회하고 JSON 직렬화까지 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderFetchStrategyBenchmark {
+
+    @Param({"100", "1000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    @Param({"50"})
+    public int members;
+
+    @Param({"200"})
+    public int items;
+
+    private ConfigurableApplicationContext context;
+    private OrderApiController controller;
+    private ObjectMapper objectMapper;
+    private TransactionTemplate readOnlyTx;
+    private Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        new BenchmarkDataSeeder(context, 500).seed(members, items, orders, itemsPerOrder);
+
+        controller = context.getBean(OrderApiController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        statistics = BenchmarkContext.statistics(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * SQL 관련 카운트
+     * - EVENTS 카운터는 iteration 마다 0 으로 초기화되고, 결과에는 모든 iteration 의 합이 나온다.
+     *   그래서 연산마다 더하고(+=), 나눌 연산 수(operations)도 함께 센다.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounters {
+        public long operations;
+        public long statements;
+        public long entityLoads;
+        public long collectionFetches;
+    }
+
+    @Benchmark
+    public byte[] v1_entity(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV1());
+    }
+
+    @Benchmark
+    public byte[] v2_entityToDto(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV2());
+    }
+
+    @Benchmark
+    public byte[] v3_fetchJoin(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV3());
+    }
+
+    @Benchmark
+    public byte[] v3_1_batchFetch(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV3_page(0, orders));
+    }
+
+    @Benchmark
+    public byte[] v4_dto_1PlusN(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV4());
+    }
+
+    @Benchmark
+    public byte[] v5_dto_1Plus1(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV5());
+    }
+
+    @Benchmark
+    public byte[] v6_flat(SqlCounters counters) {
+        return measure(counters, () -> controller.ordersV6());
+    }
+
+    private byte[] measure(SqlCounters counters, Supplier<Object> strategy) {
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long entityLoadsBefore = statistics.getEntityLoadCount();
+        long collectionFetchesBefore = statistics.getCollectionFetchCount();
+
+        byte[] json = readOnlyTx.execute(status -> {
+            try {
+                return objectMapper.writeValueAsBytes(strategy.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        counters.operations++;
+        counters.statements += statistics.getPrepareStatementCount() - statementsBefore;
+        counters.entityLoads += statistics.getEntityLoadCount() - entityLoadsBefore;
+        counters.collectionFetches += statistics.getCollectionFetchCount() - collectionFetchesBefore;
+        return json;
+    }
+}
@@ -0,0 +1,98 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jpabook.jpashop.config.SmileConfig;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderQueryDto 목록(V4 ~ V6 응답) 직렬화 포맷 비교
+ * - json: 기존 JSON
+ * - smile: Smile 기본 설정 (필드 이름만 공유)
+ * - smile-shared: SmileConfig 설정 (필드 이름 + 반복 문자열 값 공유)
+ *
+ * CPU: AverageTime, 할당: -prof gc, 크기: PayloadSize.bytes / PayloadSize.operations (연산 1번당 응답 바이트 수)
+ * DB 없이 DTO 를 직접 만들어서 직렬화 비용만 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderSerializationBenchmark {
+
+    @Param({"json", "smile", "smile-shared"})
+    public String format;
+
+    @Param({"1000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    @Param({"200"})
+    public int distinctItemNames;
+
+    private ObjectWriter writer;
+    private List<OrderQueryDto> data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (format) {
+            case "json":
+                writer = Jackson2ObjectMapperBuilder.json().build().writer();
+                break;
+            case "smile":
+                writer = Jackson2ObjectMapperBuilder.smile().factory(new SmileFactory()).build().writer();
+                break;
+            case "smile-shared":
+                writer = Jackson2ObjectMapperBuilder.smile().factory(SmileConfig.smileFactory()).build().writer();
+                break;
+            default:
+                throw new IllegalArgumentException("format=" + format);
+        }
+
+        data = new ArrayList<>(orders);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < orders; i++) {
+            OrderQueryDto order = new OrderQueryDto((long) i, "member" + (i % 50), now, OrderStatus.ORDER,
+                    new Address("city" + (i % 20), "street" + (i % 100), String.valueOf(10000 + i % 100)));
+            List<OrderItemQueryDto> items = new ArrayList<>(itemsPerOrder);
+            for (int j = 0; j < itemsPerOrder; j++) {
+                int item = (i * itemsPerOrder + j) % distinctItemNames;
+                items.add(new OrderItemQueryDto((long) i, "BOOK " + item, 1000 + item * 100, 1 + j));
+            }
+            order.setOrderItems(items);
+            data.add(order);
+        }
+    }
+
+    /**
+     * EVENTS 카운터는 모든 iteration 의 합으로 나오므로 바이트 수와 연산 수를 함께 더한다.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+        public long operations;
+        public long bytes;
+    }
+
+    @Benchmark
+    public byte[] serialize(PayloadSize size) throws Exception {
+        byte[] bytes = writer.writeValueAsBytes(data);
+        size.operations++;
+        size.bytes += bytes.length;
+        return bytes;
+    }
+}
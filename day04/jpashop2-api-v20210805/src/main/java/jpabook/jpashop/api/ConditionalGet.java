@@ -0,0 +1,18 @@
+package jpabook.jpashop.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 조건부 GET (ETag / If-None-Match)
+ * - value 의 애그리거트 버전이 그대로면 핸들러를 실행하지 않고 304 로 응답한다. (ConditionalGetInterceptor)
+ * - 응답에 쓰이는 애그리거트를 모두 적어야 한다. ex) 주문 목록 = Order + Member(회원명) + Item(상품명)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+
+    Class<?>[] value();
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.ChangeVersionTracker;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ConditionalGet 핸들러의 ETag 처리
+ * - ETag = 기동 시각 + 애그리거트 버전들 + (URI, 쿼리 파라미터, Accept) 해시
+ * - If-None-Match 가 같으면 핸들러(JPQL, 직렬화)를 실행하지 않고 304
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private final ChangeVersionTracker changeVersionTracker;
+
+    public ConditionalGetInterceptor(ChangeVersionTracker changeVersionTracker) {
+        this.changeVersionTracker = changeVersionTracker;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || !"GET".equals(request.getMethod())) {
+            return true;
+        }
+        ConditionalGet conditionalGet = ((HandlerMethod) handler).getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            return true;
+        }
+
+        String etag = etag(request, conditionalGet);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private String etag(HttpServletRequest request, ConditionalGet conditionalGet) {
+        StringBuilder etag = new StringBuilder("\"")
+                .append(Long.toString(changeVersionTracker.bootEpoch(), 36));
+        for (Class<?> aggregate : conditionalGet.value()) {
+            etag.append('-').append(changeVersionTracker.version(aggregate));
+        }
+
+        String variant = request.getRequestURI() + "?" + request.getQueryString() + "|" + request.getHeader(HttpHeaders.ACCEPT);
+        String hash = DigestUtils.md5DigestAsHex(variant.getBytes(StandardCharsets.UTF_8));
+        return etag.append('-').append(hash, 0, 12).append('"').toString();
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,202 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * JSON 직렬화 전에 지연 로딩 연관관계를 미리 일괄 초기화한다.
+ * - Jackson 이 건드릴 연관관계(@JsonIgnore 가 아닌 것)만 따라간다.
+ * - 같은 깊이의 엔티티들을 모아서
+ *   xToOne 프록시: select e from Target e where e.id in (...)
+ *   컬렉션: select distinct e from Owner e left join fetch e.collection where e.id in (...)
+ *   연관관계 종류마다 쿼리 1번 -> 엔티티 개수와 상관없이 쿼리 수가 일정하다.
+ * - 이후 직렬화(FORCE_LAZY_LOADING)는 영속성 컨텍스트에서 찾으므로 SQL 이 나가지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class LazyGraphInitializer {
+
+    private static final int MAX_DEPTH = 5;
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final EntityManager em;
+    private final Map<Class<?>, Optional<EntityType<?>>> entityTypes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, List<Association>> associations = new ConcurrentHashMap<>();
+
+    /**
+     * @param root 엔티티 또는 엔티티 컬렉션 (그 외는 무시)
+     */
+    public void initialize(Object root) {
+        Collection<?> roots = root instanceof Collection ? (Collection<?>) root : Collections.singletonList(root);
+
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Object> level = new ArrayList<>();
+        for (Object entity : roots) {
+            addNext(entity, level, visited);
+        }
+
+        for (int depth = 0; depth < MAX_DEPTH && !level.isEmpty(); depth++) {
+            level = initializeLevel(level, visited);
+        }
+    }
+
+    private List<Object> initializeLevel(List<Object> level, Set<Object> visited) {
+        //1. 초기화가 필요한 프록시, 컬렉션을 종류별로 모은다.
+        Map<String, Set<Object>> proxyIds = new LinkedHashMap<>();
+        Map<Association, Set<Object>> collectionOwnerIds = new LinkedHashMap<>();
+        for (Object entity : level) {
+            for (Association association : associationsOf(entity)) {
+                Object value = association.read(entity);
+                if (value instanceof PersistentCollection && !((PersistentCollection) value).wasInitialized()) {
+                    collectionOwnerIds.computeIfAbsent(association, a -> new LinkedHashSet<>())
+                            .add(em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity));
+                } else if (value instanceof HibernateProxy) {
+                    LazyInitializer initializer = ((HibernateProxy) value).getHibernateLazyInitializer();
+                    if (initializer.isUninitialized()) {
+                        proxyIds.computeIfAbsent(entityName(initializer.getPersistentClass()), n -> new LinkedHashSet<>())
+                                .add(initializer.getIdentifier());
+                    }
+                }
+            }
+        }
+
+        //2. 종류마다 IN 쿼리로 한 번에 로딩
+        proxyIds.forEach((entityName, ids) ->
+                inChunks(ids, chunk -> em.createQuery("select e from " + entityName + " e where e.id in :ids")
+                        .setParameter("ids", chunk)
+                        .getResultList()));
+        collectionOwnerIds.forEach((association, ids) ->
+                inChunks(ids, chunk -> em.createQuery("select distinct e from " + association.ownerEntityName + " e" +
+                                " left join fetch e." + association.name +
+                                " where e.id in :ids")
+                        .setParameter("ids", chunk)
+                        .getResultList()));
+
+        //3. 다음 깊이
+        List<Object> next = new ArrayList<>();
+        for (Object entity : level) {
+            for (Association association : associationsOf(entity)) {
+                Object value = association.read(entity);
+                if (value instanceof Collection) {
+                    for (Object element : (Collection<?>) value) {
+                        addNext(element, next, visited);
+                    }
+                } else {
+                    addNext(value, next, visited);
+                }
+            }
+        }
+        return next;
+    }
+
+    private void addNext(Object value, List<Object> next, Set<Object> visited) {
+        if (value == null) {
+            return;
+        }
+        Object entity = Hibernate.unproxy(value); //이미 로딩되어 있으므로 SQL 없음
+        if (visited.add(entity) && isManagedEntity(entity)) {
+            next.add(entity);
+        }
+    }
+
+    private void inChunks(Set<Object> ids, Consumer<List<Object>> loader) {
+        List<Object> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            loader.accept(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size())));
+        }
+    }
+
+    private boolean isManagedEntity(Object value) {
+        if (value == null || entityType(Hibernate.getClass(value)) == null) {
+            return false;
+        }
+        return em.contains(value);
+    }
+
+    private List<Association> associationsOf(Object entity) {
+        return associations.computeIfAbsent(Hibernate.getClass(entity), this::findAssociations);
+    }
+
+    private List<Association> findAssociations(Class<?> entityClass) {
+        EntityType<?> entityType = entityType(entityClass);
+        if (entityType == null) {
+            return Collections.emptyList();
+        }
+
+        List<Association> result = new ArrayList<>();
+        for (Attribute<?, ?> attribute : entityType.getAttributes()) {
+            if (!attribute.isAssociation() || !(attribute.getJavaMember() instanceof Field)) {
+                continue;
+            }
+            Field field = (Field) attribute.getJavaMember();
+            if (field.isAnnotationPresent(JsonIgnore.class)) {
+                continue; //직렬화하지 않는 연관관계
+            }
+            ReflectionUtils.makeAccessible(field);
+            result.add(new Association(entityName(attribute.getDeclaringType().getJavaType()), field));
+        }
+        return result;
+    }
+
+    private EntityType<?> entityType(Class<?> type) {
+        return entityTypes.computeIfAbsent(type, this::findEntityType).orElse(null);
+    }
+
+    private Optional<EntityType<?>> findEntityType(Class<?> type) {
+        Metamodel metamodel = em.getMetamodel();
+        try {
+            return Optional.of(metamodel.entity(type));
+        } catch (IllegalArgumentException e) { //엔티티가 아님 (DTO 등)
+            return Optional.empty();
+        }
+    }
+
+    private String entityName(Class<?> type) {
+        return entityType(type).getName();
+    }
+
+    private static final class Association {
+
+        private final String ownerEntityName;
+        private final String name;
+        private final Field field;
+
+        private Association(String ownerEntityName, Field field) {
+            this.ownerEntityName = ownerEntityName;
+            this.name = field.getName();
+            this.field = field;
+        }
+
+        private Object read(Object entity) {
+            return ReflectionUtils.getField(field, entity);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Association)) return false;
+            Association that = (Association) o;
+            return ownerEntityName.equals(that.ownerEntityName) && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ownerEntityName, name);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package jpabook.jpashop.api;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 엔티티를 그대로 반환하는 API(V1)의 직렬화 모드
+ * - jpashop.jackson.lazy-loading=preload 이면 JSON 을 쓰기 전에 LazyGraphInitializer 로
+ *   연관관계를 일괄 초기화한다. (지연 로딩이 직렬화 중에 한 건씩 나가지 않는다)
+ * - force(기본) 이면 Hibernate5Module FORCE_LAZY_LOADING 이 직렬화 중에 하나씩 초기화한다.
+ */
+@RestControllerAdvice
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.jackson.lazy-loading", havingValue = "preload")
+public class LazyGraphPreloadAdvice implements ResponseBodyAdvice<Object> {
+
+    private final LazyGraphInitializer lazyGraphInitializer;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body != null) {
+            lazyGraphInitializer.initialize(body);
+        }
+        return body;
+    }
+}
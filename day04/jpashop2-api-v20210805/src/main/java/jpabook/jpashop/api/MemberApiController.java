@@ -1,14 +1,24 @@
 package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberImportService;
+import jpabook.jpashop.service.MemberImportService.Format;
+import jpabook.jpashop.service.MemberImportService.ImportResult;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -16,6 +26,7 @@ import java.util.stream.Collectors;
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final MemberImportService memberImportService;
 
     /**
      * 등록 V1: 요청 값으로 Member 엔티티를 직접 받는다.
@@ -43,6 +54,20 @@ public class MemberApiController {
         return new CreateMemberResponse(id);
     }
 
+    /**
+     * 대량 등록: 요청 본문(CSV 또는 NDJSON)을 스트리밍으로 읽어서 chunk 단위로 등록하고 결과 요약을 반환한다.
+     * - 요청마다 한 명씩 등록하면 회원마다 중복 확인 쿼리와 트랜잭션이 하나씩 생긴다.
+     * - 중간에 멈추면(형식 오류, 동시 가입 충돌) 400 과 그때까지의 결과 (앞 chunk 는 이미 등록됨)
+     */
+    @PostMapping(value = "/api/v1/members/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportResult> importMembers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) throws IOException {
+        Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.valueOf("text/csv"))
+                ? Format.CSV : Format.NDJSON;
+        ImportResult result = memberImportService.importMembers(body, format);
+        return result.getError() == null ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
     /**
      * 수정 API
      */
@@ -51,8 +76,16 @@ public class MemberApiController {
             @PathVariable("id") Long id,
             @RequestBody @Valid UpdateMemberRequest request) {
         memberService.update(id, request.getName());
-        Member findMember = memberService.findOne(id);
-        return new UpdateMemberResponse(findMember.getId(), findMember.getName());
+        return new UpdateMemberResponse(id, request.getName()); //UPDATE 가 성공했으면 요청 값이 곧 현재 값이다. 다시 조회하지 않는다.
+    }
+
+    /**
+     * 일괄 수정 API: {"names": {"1": "회원A", "2": "회원B"}}
+     */
+    @PutMapping("/api/v2/members")
+    public UpdateMembersResponse updateMembersV2(@RequestBody @Valid UpdateMembersRequest request) {
+        int updated = memberService.updateNames(request.getNames());
+        return new UpdateMembersResponse(updated);
     }
 
     /**
@@ -68,6 +101,7 @@ public class MemberApiController {
      * - API 응답 스펙에 맞추어 별도의 DTO를 반환한다.
      */
     //조회 V1: 안 좋은 버전, 모든 엔티티가 노출, @JsonIgnore -> 이건 정말 최악, api가 이거 하나인가! 화면에 종속적이지 마라!
+    @ConditionalGet(Member.class)
     @GetMapping("/api/v1/members")
     public List<Member> membersV1() {
         return memberService.findMembers();
@@ -76,6 +110,7 @@ public class MemberApiController {
     /**
      * 조회 V2: 응답 값으로 엔티티가 아닌 별도의 DTO를 반환한다.
      */
+    @ConditionalGet(Member.class)
     @GetMapping("/api/v2/members")
     public Result membersV2() {
 
@@ -112,6 +147,18 @@ public class MemberApiController {
         private String name;
     }
 
+    @Data
+    static class UpdateMembersRequest {
+        @NotEmpty
+        private Map<Long, String> names;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class UpdateMembersResponse {
+        private int updated;
+    }
+
     @Data
     static class CreateMemberRequest {
         private String name;
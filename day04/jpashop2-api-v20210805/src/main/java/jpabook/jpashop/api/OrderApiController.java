@@ -1,20 +1,47 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.monitor.SqlBudget;
 import jpabook.jpashop.repository.*;
+import jpabook.jpashop.repository.order.query.OrderDetailQueryDto;
+import jpabook.jpashop.repository.order.query.OrderDetailQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
 import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderFlatPage;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.search.OrderSearchPage;
+import jpabook.jpashop.service.OrderCancellationPipeline;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -31,6 +58,7 @@ import static java.util.stream.Collectors.*;
  * - 트랜잭션 안에서 지연 로딩 필요
  * V3. 엔티티를 조회해서 DTO로 변환(fetch join 사용O)
  * - 페이징 시에는 N 부분을 포기해야함(대신에 batch fetch size? 옵션 주면 N -> 1 쿼리로 변경 가능)
+ * - V3.2 offset 대신 키셋(order_id) 기반 next 토큰으로 페이징
  *
  * V4. JPA에서 DTO로 바로 조회, 컬렉션 N 조회 (1 + N Query)
  * - 페이징 가능
@@ -38,6 +66,13 @@ import static java.util.stream.Collectors.*;
  * - 페이징 가능
  * V6. JPA에서 DTO로 바로 조회, 플랫 데이터(1Query) (1 Query)
  * - 페이징 불가능...
+ * - V6.1 order_id 범위를 먼저 조회하면 주문 단위 페이징 가능 (1 + 1 Query)
+ *
+ * V7. JPA에서 DTO로 바로 조회, 커서 스트리밍 (chunk 당 1 Query)
+ * - 전체 결과를 List 로 모으지 않고 NDJSON 으로 바로 출력 -> 전체 내보내기용
+ *
+ * V8. 주문 상세, 독립적인 DTO 조회를 동시에 실행해서 orderId 로 조립 (5 Query 병렬)
+ * - 응답 시간이 조회 시간의 합이 아니라 가장 느린 조회 시간에 가까워진다.
  *
  */
 @RestController
@@ -46,6 +81,14 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderDetailQueryRepository orderDetailQueryRepository;
+    private final OrderService orderService;
+    private final OrderCancellationPipeline orderCancellationPipeline;
+    private final ObjectMapper objectMapper;
+
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     /**
      * V1. 엔티티 직접 노출
@@ -53,6 +96,7 @@ public class OrderApiController {
      * - 양방향 관계 문제 발생 -> @JsonIgnore
      * - 컬렉션
      */
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
         List<Order> all = orderRepository.findAll();
@@ -65,6 +109,7 @@ public class OrderApiController {
         return all;
     }
 
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v2/orders")
     public List<OrderDto> ordersV2() {
         List<Order> orders = orderRepository.findAll();
@@ -75,6 +120,8 @@ public class OrderApiController {
         return result;
     }
 
+    @SqlBudget(statements = 1)
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3() {
         List<Order> orders = orderRepository.findAllWithItem();
@@ -90,6 +137,7 @@ public class OrderApiController {
      * - ToOne 관계만 우선 모두 페치 조인으로 최적화
      * - 컬렉션 관계는 hibernate.default_batch_fetch_size, @BatchSize로 최적화
      */
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page(@RequestParam(value = "offset", defaultValue = "0") int offset,
                                         @RequestParam(value = "limit", defaultValue = "100") int limit) {
@@ -102,26 +150,204 @@ public class OrderApiController {
         return result;
     }
 
+    /**
+     * V3.2 엔티티를 조회해서 DTO로 변환 키셋(seek) 페이징
+     * - offset 대신 next 토큰(마지막 order_id)으로 이어서 조회 -> 페이지 깊이와 상관없이 일정한 비용
+     * - 컬렉션 관계는 V3.1 과 동일하게 hibernate.default_batch_fetch_size 로 최적화
+     * - limit + 1 건을 조회해서 다음 페이지 존재 여부를 판단(마지막 페이지에서 빈 페이지 요청 방지)
+     * - limit 은 1 ~ MAX_PAGE_SIZE 로 맞추고, 잘못된 next 토큰은 400
+     */
+    @ConditionalGet({Order.class, Member.class, Item.class})
+    @GetMapping("/api/v3.2/orders")
+    public OrderPage<OrderDto> ordersV3_seek(@RequestParam(value = "next", required = false) String next,
+                                             @RequestParam(value = "limit", defaultValue = "100") int limit) {
+
+        Long lastOrderId = OrderCursor.decode(next);
+        limit = pageSize(limit);
+        List<Order> orders = orderRepository.findAllWithMemberDeliveryAfter(lastOrderId, limit + 1);
+
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders = orders.subList(0, limit);
+        }
+
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+
+        String nextToken = hasNext ? OrderCursor.encode(orders.get(orders.size() - 1).getId()) : null;
+        return new OrderPage<>(result, nextToken);
+    }
+
+    /**
+     * 주문 검색 (회원 이름, 주문 상태)
+     * - 필터 조합마다 캐시된 JPQL, order_id 키셋 페이징 (OrderSearchRepository)
+     * - nameMatch: PREFIX(기본, 인덱스 사용), EXACT, CONTAINS
+     */
+    @ConditionalGet({Order.class, Member.class, Item.class})
+    @GetMapping("/api/v1/orders/search")
+    public OrderPage<OrderDto> searchOrders(@ModelAttribute OrderSearch orderSearch,
+                                            @RequestParam(value = "next", required = false) String next,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        OrderSearchPage page = orderService.findOrders(orderSearch, OrderCursor.decode(next), limit);
+        List<OrderDto> result = page.getOrders().stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+        return new OrderPage<>(result, OrderCursor.encode(page.getNextOrderId()));
+    }
+
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v4/orders")
     public List<OrderQueryDto> ordersV4() {
         return orderQueryRepository.findOrderQueryDtos();
     }
 
+    @SqlBudget(statements = 2)
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v5/orders")
     public List<OrderQueryDto> ordersV5() {
         return orderQueryRepository.findAllByDto_optimization();
     }
 
+    /**
+     * V6. 플랫 데이터를 order_id 순으로 조회해서 한 번에 훑으며 조립
+     * - groupingBy 로 키 DTO, 그룹 DTO 를 따로 만들지 않고 SQL 정렬 순서를 유지한다.
+     */
+    @SqlBudget(statements = 1)
+    @ConditionalGet({Order.class, Member.class, Item.class})
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
+        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flatOrderById();
+        return OrderFlatAssembler.assemble(flats);
+    }
+
+    /**
+     * V6.1 플랫 데이터 키셋 페이징
+     * - order_id 범위를 먼저 잘라서 주문 단위로 페이징 (row 단위 페이징 문제 해결)
+     * - limit 은 1 ~ MAX_PAGE_SIZE 로 맞추고, 잘못된 next 토큰은 400
+     */
+    @ConditionalGet({Order.class, Member.class, Item.class})
+    @GetMapping("/api/v6.1/orders")
+    public OrderPage<OrderQueryDto> ordersV6_page(@RequestParam(value = "next", required = false) String next,
+                                                  @RequestParam(value = "limit", defaultValue = "100") int limit) {
+
+        OrderFlatPage page = orderQueryRepository.findAllByDto_flat(OrderCursor.decode(next), pageSize(limit));
+        return new OrderPage<>(page.getOrders(), OrderCursor.encode(page.getNextOrderId()));
+    }
+
+    /**
+     * V7. 전체 주문 스트리밍(NDJSON)
+     * - 한 줄에 OrderQueryDto 하나씩 응답 스트림에 바로 쓴다.
+     * - chunk 단위로 flush 하고, 리포지토리에서 chunk 마다 영속성 컨텍스트를 비운다.
+     */
+    @GetMapping(value = "/api/v7/orders/stream", produces = "application/x-ndjson")
+    public void ordersV7_stream(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null); //줄바꿈은 직접 쓴다
+
+            orderQueryRepository.streamAllByDto(STREAM_FETCH_SIZE, STREAM_CHUNK_SIZE, chunk -> {
+                try {
+                    for (OrderQueryDto order : chunk) {
+                        writer.writeValue(generator, order);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * V8. 주문 상세 (주문, 회원, 배송, 주문상품, 카테고리)
+     */
+    @GetMapping("/api/v8/orders/{orderId}")
+    public ResponseEntity<OrderDetailQueryDto> orderDetailV8(@PathVariable("orderId") Long orderId) {
+        return ResponseEntity.of(orderDetailQueryRepository.findOrderDetail(orderId));
+    }
 
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+    /**
+     * 대량 주문 등록
+     * - 주문 여러 건, 주문마다 상품 여러 개를 한 번에 등록 (JDBC 배치 INSERT)
+     */
+    @PostMapping("/api/v1/orders/bulk")
+    public BulkOrderResponse saveOrdersBulk(@RequestBody @Valid BulkOrderRequest request) {
+        List<OrderCommand> commands = request.getOrders().stream()
+                .map(o -> new OrderCommand(o.getMemberId(), o.getOrderItems().stream()
+                        .map(oi -> new OrderCommand.OrderLine(oi.getItemId(), oi.getCount()))
+                        .collect(toList())))
                 .collect(toList());
+
+        return new BulkOrderResponse(orderService.orderBulk(commands));
+    }
+
+    /**
+     * 대량 주문 취소 (비동기)
+     * - 취소 요청을 큐에 넣고 202 Accepted 로 바로 응답한다.
+     * - 실제 취소와 재고 복구는 OrderCancellationPipeline 이 배치로 처리한다.
+     * - 큐에 요청한 주문 수만큼 자리가 없으면 하나도 접수하지 않고 503
+     */
+    @PostMapping("/api/v1/orders/cancel")
+    public ResponseEntity<CancelOrdersResponse> cancelOrders(@RequestBody @Valid CancelOrdersRequest request) {
+        orderCancellationPipeline.submitAll(request.getOrderIds());
+        return ResponseEntity.accepted()
+                .body(new CancelOrdersResponse(request.getOrderIds().size()));
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    @Data
+    static class CancelOrdersRequest {
+        @NotEmpty
+        private List<@NotNull Long> orderIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CancelOrdersResponse {
+        private int accepted;
+    }
+
+    @Data
+    static class BulkOrderRequest {
+        @NotEmpty
+        private List<@Valid OrderRequest> orders;
+    }
+
+    @Data
+    static class OrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        private List<@Valid OrderItemRequest> orderItems;
+    }
+
+    @Data
+    static class OrderItemRequest {
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BulkOrderResponse {
+        private List<Long> orderIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderPage<T> {
+        private List<T> data;
+        private String next; //다음 페이지 토큰, 마지막 페이지면 null
     }
 
     @Data
@@ -0,0 +1,51 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.InvalidPageTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋 페이징용 continuation 토큰
+ * - 클라이언트에는 불투명한 문자열로 노출하고, 내부적으로는 마지막으로 읽은 order_id 를 담는다.
+ * - 토큰 포맷을 바꿔도 API 스펙은 변하지 않도록 인코딩/디코딩을 한 곳에 모아둔다.
+ * - 잘못된 토큰은 InvalidPageTokenException(400)
+ */
+public final class OrderCursor {
+
+    private static final String PREFIX = "o:";
+
+    private OrderCursor() {
+    }
+
+    public static String encode(Long lastOrderId) {
+        if (lastOrderId == null) {
+            return null;
+        }
+        byte[] raw = (PREFIX + lastOrderId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * @return 마지막으로 읽은 order_id, 토큰이 없으면 null (첫 페이지)
+     */
+    public static Long decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageTokenException("잘못된 페이지 토큰입니다.", e);
+        }
+        if (!raw.startsWith(PREFIX)) {
+            throw new InvalidPageTokenException("잘못된 페이지 토큰입니다.");
+        }
+        try {
+            return Long.valueOf(raw.substring(PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidPageTokenException("잘못된 페이지 토큰입니다.", e);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.monitor.SqlBudget;
 import jpabook.jpashop.repository.*;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryQueryDto;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -36,6 +39,7 @@ public class OrderSimpleApiController {
      * - Hibernate5Module 모듈 등록, LAZY=null 처리
      * - 양방향 관계 문제 발생 -> @JsonIgnore
      */
+    @ConditionalGet({Order.class, Member.class})
     @GetMapping("/api/v1/simple-orders")
     public List<Order> ordersV1() {
         List<Order> all = orderRepository.findAllByString(new OrderSearch());
@@ -50,6 +54,7 @@ public class OrderSimpleApiController {
      * V2. 엔티티를 조회해서 DTO로 변환(fetch join 사용X)
      * - 단점: 지연로딩으로 쿼리 N번 호출
      */
+    @ConditionalGet({Order.class, Member.class})
     @GetMapping("/api/v2/simple-orders")
     public List<SimpleOrderDto> ordersV2() {
         List<Order> orders = orderRepository.findAll();
@@ -65,6 +70,8 @@ public class OrderSimpleApiController {
      * - fetch join으로 쿼리 1번 호출
      * 참고: fetch join에 대한 자세한 내용은 JPA 기본편 참고(정말 중요함)
      */
+    @SqlBudget(statements = 1)
+    @ConditionalGet({Order.class, Member.class})
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> ordersV3() {
         List<Order> orders = orderRepository.findAllWithMemberDelivery();
@@ -74,11 +81,24 @@ public class OrderSimpleApiController {
         return result;
     }
 
+    @SqlBudget(statements = 1)
+    @ConditionalGet({Order.class, Member.class})
     @GetMapping("/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> ordersV4() {
         return orderSimpleQueryRepository.findOrderDtos();
     }
 
+    /**
+     * V5. 주문 목록 요약 (총액, 수량 포함)
+     * - orders 에 저장해둔 total_price, item_count 를 쓰므로 order_item 은 조회하지 않는다. (쿼리 1번)
+     */
+    @SqlBudget(statements = 1)
+    @ConditionalGet({Order.class, Member.class})
+    @GetMapping("/api/v5/simple-orders")
+    public List<OrderSummaryQueryDto> ordersV5() {
+        return orderSimpleQueryRepository.findOrderSummaries();
+    }
+
 
     @Data
     static class SimpleOrderDto {
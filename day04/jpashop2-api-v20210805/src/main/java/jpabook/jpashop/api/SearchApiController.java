@@ -0,0 +1,89 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.search.SearchIndexRebuilder;
+import jpabook.jpashop.search.SearchIndexRebuilder.RebuildResult;
+import jpabook.jpashop.service.SearchService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 전문 검색 API
+ * - 회원: 이름
+ * - 상품: 이름, 도서 저자, ISBN('-' 무시)
+ * - 단어 일치, 앞부분 일치, 중간 일치("길동" -> "홍길동") 모두 찾는다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class SearchApiController {
+
+    private final SearchService searchService;
+    private final SearchIndexRebuilder searchIndexRebuilder;
+
+    @GetMapping("/api/v1/search/members")
+    public Result<List<MemberSearchDto>> searchMembers(@RequestParam("q") String q,
+                                                       @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        List<MemberSearchDto> result = searchService.searchMembers(q, limit).stream()
+                .map(m -> new MemberSearchDto(m.getId(), m.getName()))
+                .collect(Collectors.toList());
+        return new Result<>(result);
+    }
+
+    @GetMapping("/api/v1/search/items")
+    public Result<List<ItemSearchDto>> searchItems(@RequestParam("q") String q,
+                                                   @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        List<ItemSearchDto> result = searchService.searchItems(q, limit).stream()
+                .map(ItemSearchDto::new)
+                .collect(Collectors.toList());
+        return new Result<>(result);
+    }
+
+    /**
+     * DB 에서 검색 인덱스 다시 만들기
+     */
+    @PostMapping("/api/v1/search/rebuild")
+    public RebuildResult rebuild() {
+        return searchIndexRebuilder.rebuild();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T> {
+        private T data;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class MemberSearchDto {
+        private Long id;
+        private String name;
+    }
+
+    @Data
+    static class ItemSearchDto {
+        private Long id;
+        private String name;
+        private int price;
+        private String author;
+        private String isbn;
+
+        ItemSearchDto(Item item) {
+            id = item.getId();
+            name = item.getName();
+            price = item.getPrice();
+            if (item instanceof Book) {
+                author = ((Book) item).getAuthor();
+                isbn = ((Book) item).getIsbn();
+            }
+        }
+    }
+}
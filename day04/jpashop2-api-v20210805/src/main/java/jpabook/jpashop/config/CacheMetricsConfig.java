@@ -0,0 +1,67 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jpabook.jpashop.repository.ItemRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 2차 캐시 리전별 히트/미스 메트릭
+ * - jpashop.cache.requests{region, result=hit|miss}
+ * - jpashop.cache.puts{region}
+ * hibernate.generate_statistics 가 켜져 있어야 값이 쌓인다.
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder cacheRegionMetrics(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        return registry -> {
+            bind(registry, "item", statistics, s -> s.getDomainDataRegionStatistics("item"));
+            bind(registry, "category", statistics, s -> s.getDomainDataRegionStatistics("category"));
+            //쿼리 캐시 리전은 처음 사용할 때 만들어지므로 그 전에는 null
+            bind(registry, ItemRepository.QUERY_CACHE_REGION, statistics,
+                    s -> s.getQueryRegionStatistics(ItemRepository.QUERY_CACHE_REGION));
+        };
+    }
+
+    private void bind(MeterRegistry registry, String region, Statistics statistics,
+                      Function<Statistics, CacheRegionStatistics> regionStatistics) {
+        FunctionCounter.builder("jpashop.cache.requests", statistics,
+                        count(regionStatistics, CacheRegionStatistics::getHitCount))
+                .tags("region", region, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("jpashop.cache.requests", statistics,
+                        count(regionStatistics, CacheRegionStatistics::getMissCount))
+                .tags("region", region, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("jpashop.cache.puts", statistics,
+                        count(regionStatistics, CacheRegionStatistics::getPutCount))
+                .tags("region", region)
+                .register(registry);
+    }
+
+    private ToDoubleFunction<Statistics> count(Function<Statistics, CacheRegionStatistics> regionStatistics,
+                                              ToLongFunction<CacheRegionStatistics> counter) {
+        return s -> {
+            try {
+                CacheRegionStatistics stats = regionStatistics.apply(s);
+                return stats == null ? 0 : counter.applyAsLong(stats);
+            } catch (IllegalArgumentException e) { //2차 캐시를 끈 환경(테스트 등)에서는 리전이 없다.
+                return 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 컨트롤러 실행 모드 설정 (jpashop.web.execution.mode)
+ * - servlet: 기존처럼 Tomcat 스레드에서 실행 (이 설정은 사용하지 않는다)
+ * - bounded: 전용 고정 스레드 풀에서 실행
+ * - virtual: 가상 스레드에서 실행 (JDK 21+, 없으면 bounded)
+ *
+ * bounded, virtual 모드는 느린 쿼리가 몰려도 Tomcat 스레드를 붙잡지 않고,
+ * 커넥션 풀 크기 이상의 핸들러는 기다리다 503 으로 거절한다.
+ *
+ * max-concurrency 는 요청 스레드가 쓰는 커넥션만 센다. 아래 조회는 커넥션을 따로 더 쓴다.
+ * - OrderItemQueryLoader: 애플리케이션 전체에서 최대 jpashop.query.in-parallelism 개
+ * - QueryComposer: 애플리케이션 전체에서 최대 jpashop.query.compose-parallelism 개
+ * 풀 크기가 max-concurrency + in-parallelism + compose-parallelism 보다 작으면
+ * 이 조회들이 커넥션을 기다리게 되므로 기동할 때 경고를 남긴다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("!'${jpashop.web.execution.mode:servlet}'.equalsIgnoreCase('servlet')")
+public class HandlerExecutionConfig {
+
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean(destroyMethod = "shutdown")
+    public HandlerExecutor handlerExecutor(
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${jpashop.web.execution.mode}") String mode,
+            @Value("${jpashop.web.execution.max-concurrency:0}") int maxConcurrency,
+            @Value("${jpashop.web.execution.acquire-timeout-ms:100}") long acquireTimeoutMs,
+            @Value("${jpashop.web.execution.timeout-ms:30000}") long timeoutMs,
+            @Value("${jpashop.query.in-parallelism:4}") int inParallelism,
+            @Value("${jpashop.query.compose-parallelism:8}") int composeParallelism) {
+        int poolSize = maximumPoolSize(dataSource);
+        int concurrency = maxConcurrency > 0 ? maxConcurrency : poolSize;
+        int required = concurrency + inParallelism + composeParallelism;
+        if (poolSize < required) {
+            log.warn("커넥션 풀이 동시 실행 핸들러와 병렬 조회를 모두 감당하지 못합니다. 병렬 조회가 커넥션을 기다릴 수 있습니다. " +
+                            "maximumPoolSize={}, maxConcurrency={}, inParallelism={}, composeParallelism={}",
+                    poolSize, concurrency, inParallelism, composeParallelism);
+        }
+        HandlerExecutor executor = new HandlerExecutor(HandlerExecutor.Mode.valueOf(mode.toUpperCase(Locale.ROOT)),
+                concurrency, acquireTimeoutMs, timeoutMs, meterRegistry);
+        log.info("컨트롤러 실행 모드 mode={}, maxConcurrency={}", executor.getMode(), executor.getMaxConcurrency());
+        return executor;
+    }
+
+    @Bean
+    public WebMvcRegistrations offloadingWebMvcRegistrations(
+            HandlerExecutor handlerExecutor,
+            @Value("${jpashop.web.execution.packages:jpabook.jpashop.api,jpabook.jpashop.controller}") List<String> packages) {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new OffloadingRequestMappingHandlerAdapter(handlerExecutor, packages);
+            }
+        };
+    }
+
+    /**
+     * replica 를 쓰면 라우팅 DataSource 를 풀어서 primary 풀 크기를 쓴다.
+     */
+    private static int maximumPoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                int size = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                if (size > 0) {
+                    return size;
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("HikariCP 풀 크기를 확인하지 못했습니다. 기본값 {} 을 사용합니다.", HIKARI_DEFAULT_POOL_SIZE, e);
+        }
+        return HIKARI_DEFAULT_POOL_SIZE;
+    }
+}
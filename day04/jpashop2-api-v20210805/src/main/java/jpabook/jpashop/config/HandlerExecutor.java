@@ -0,0 +1,195 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.exception.ServerBusyException;
+import jpabook.jpashop.monitor.SqlStatistics;
+import jpabook.jpashop.monitor.SqlStatisticsHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 컨트롤러 핸들러 전용 executor
+ * - VIRTUAL: 작업마다 가상 스레드 (JDK 21+). 지원하지 않는 JVM 이면 BOUNDED 로 대신한다.
+ * - BOUNDED: maxConcurrency 크기의 고정 스레드 풀
+ * - 동시에 실행하는 핸들러 수는 maxConcurrency(기본: HikariCP maximum-pool-size)로 제한한다.
+ *   커넥션을 못 얻을 요청을 스레드에 쌓아두지 않고, acquireTimeout 안에 자리가 나지 않으면 ServerBusyException(503)
+ * - 자리는 핸들러가 끝나고 비동기 요청까지 끝나야 반환한다.
+ *   OSIV 면 핸들러가 끝난 뒤에도 비동기 디스패치(응답 직렬화)가 끝날 때까지 커넥션을 잡고 있기 때문이다.
+ *
+ * 메트릭
+ * - jpashop.web.handler.active : 자리를 차지한 요청 수 (실행 중인 핸들러 + 응답 중인 요청)
+ * - jpashop.web.handler.rejected : 자리가 없어서 503 으로 거절한 요청 수
+ */
+@Slf4j
+public class HandlerExecutor {
+
+    public enum Mode {
+        SERVLET, BOUNDED, VIRTUAL
+    }
+
+    private final Mode mode;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+    private final long timeoutMs;
+    private final Semaphore permits;
+    private final ExecutorService executorService;
+    private final TaskExecutorAdapter taskExecutor;
+    private final Counter rejectedCounter;
+
+    public HandlerExecutor(Mode mode, int maxConcurrency, long acquireTimeoutMs, long timeoutMs, MeterRegistry meterRegistry) {
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.timeoutMs = timeoutMs;
+        this.permits = new Semaphore(maxConcurrency);
+
+        ExecutorService virtual = mode == Mode.VIRTUAL ? virtualThreadExecutor() : null;
+        if (mode == Mode.VIRTUAL && virtual == null) {
+            log.warn("가상 스레드를 지원하지 않는 JVM 입니다. BOUNDED 모드로 실행합니다. java.version={}",
+                    System.getProperty("java.version"));
+        }
+        this.mode = virtual != null ? Mode.VIRTUAL : Mode.BOUNDED;
+        //permits 로 동시 실행 수를 막으므로 풀 크기를 maxConcurrency 와 같게 두면 큐에는 거의 쌓이지 않는다.
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("handler-");
+        threadFactory.setDaemon(true);
+        this.executorService = virtual != null ? virtual
+                : Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+        this.taskExecutor = new TaskExecutorAdapter(executorService);
+        this.taskExecutor.setTaskDecorator(HandlerExecutor::propagateSqlStatistics);
+
+        Gauge.builder("jpashop.web.handler.active", permits, p -> maxConcurrency - p.availablePermits())
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("jpashop.web.handler.rejected")
+                .register(meterRegistry);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 핸들러를 executor 에서 실행하고 요청을 비동기 처리로 전환한다.
+     * - 자리가 없으면 서블릿 스레드에서 바로 ServerBusyException
+     * - 자리는 Permit 이 반환한다. (핸들러 종료 + 비동기 요청 완료)
+     */
+    public void start(WebAsyncManager asyncManager, Callable<Object> handler, Object... processingContext) throws Exception {
+        acquire();
+        Permit permit = new Permit();
+        WebAsyncTask<Object> task = new WebAsyncTask<>(timeoutMs, taskExecutor, () -> {
+            if (!permit.startHandler()) {
+                return null; //실행되기 전에 요청이 끝남 (타임아웃)
+            }
+            try {
+                return handler.call();
+            } finally {
+                permit.handlerDone();
+            }
+        });
+        task.onCompletion(permit::requestDone); //타임아웃, 오류로 끝나도 호출된다.
+
+        try {
+            asyncManager.startCallableProcessing(task, processingContext);
+        } catch (RejectedExecutionException e) {
+            permit.requestDone(); //종료 중이라 실행되지 않은 작업
+            throw e;
+        }
+    }
+
+    private void acquire() throws InterruptedException {
+        if (permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        rejectedCounter.increment();
+        throw new ServerBusyException("요청이 너무 많습니다. 잠시 후 다시 시도해주세요.");
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * 요청 하나가 차지한 자리
+     * - 핸들러 몫과 요청 몫이 모두 끝나야 permits 를 반환한다. 각 몫은 한 번만 끝난다.
+     * - 핸들러가 시작되기 전에 요청이 끝나면 핸들러는 실행하지 않고 그 몫도 요청이 끝낸다.
+     *   (타임아웃으로 취소되어 실행되지 않는 작업 때문에 자리가 새지 않도록)
+     */
+    private final class Permit {
+
+        private final AtomicBoolean handlerStarted = new AtomicBoolean();
+        private final AtomicBoolean handlerDone = new AtomicBoolean();
+        private final AtomicBoolean requestDone = new AtomicBoolean();
+        private final AtomicInteger remaining = new AtomicInteger(2);
+
+        boolean startHandler() {
+            return handlerStarted.compareAndSet(false, true);
+        }
+
+        void handlerDone() {
+            if (handlerDone.compareAndSet(false, true)) {
+                countDown();
+            }
+        }
+
+        void requestDone() {
+            if (!requestDone.compareAndSet(false, true)) {
+                return;
+            }
+            if (startHandler()) {
+                handlerDone(); //실행되지 않을 핸들러
+            }
+            countDown();
+        }
+
+        private void countDown() {
+            if (remaining.decrementAndGet() == 0) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 요청 스레드의 SqlStatistics 를 핸들러 스레드로 넘긴다.
+     */
+    private static Runnable propagateSqlStatistics(Runnable task) {
+        SqlStatistics statistics = SqlStatisticsHolder.current();
+        return () -> {
+            SqlStatisticsHolder.set(statistics);
+            try {
+                task.run();
+            } finally {
+                SqlStatisticsHolder.clear();
+            }
+        };
+    }
+
+    /**
+     * JDK 11 로 컴파일하므로 Executors.newVirtualThreadPerTaskExecutor() 는 리플렉션으로 찾는다.
+     * @return 지원하지 않으면 null (JDK 19, 20 은 --enable-preview 가 없으면 UnsupportedOperationException)
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package jpabook.jpashop.config;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 핸들러 메서드 본문을 HandlerExecutor 에서 실행하는 RequestMappingHandlerAdapter
+ * - 인자 바인딩, 검증(@Valid)은 서블릿 스레드에서 하고 메서드 호출만 넘긴다.
+ * - 반환값은 Callable 과 같은 방식으로 비동기 디스패치에서 처리한다. (JSON 변환, 뷰 렌더링)
+ *   OSIV 의 EntityManager 는 OpenEntityManagerInViewInterceptor 가 핸들러 스레드에도 바인딩한다.
+ * - offloadPackages 밖의 핸들러, 이미 비동기 타입을 반환하는 핸들러는 그대로 실행한다.
+ */
+public class OffloadingRequestMappingHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    private static final List<Class<?>> ASYNC_RETURN_TYPES = Arrays.asList(
+            Callable.class, WebAsyncTask.class, DeferredResult.class, ListenableFuture.class,
+            CompletionStage.class, ResponseBodyEmitter.class, StreamingResponseBody.class);
+
+    private final HandlerExecutor handlerExecutor;
+    private final List<String> offloadPackages;
+
+    public OffloadingRequestMappingHandlerAdapter(HandlerExecutor handlerExecutor, List<String> offloadPackages) {
+        this.handlerExecutor = handlerExecutor;
+        this.offloadPackages = offloadPackages;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (!isOffloaded(handlerMethod)) {
+            return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        return new OffloadingInvocableHandlerMethod(handlerMethod);
+    }
+
+    private boolean isOffloaded(HandlerMethod handlerMethod) {
+        String packageName = ClassUtils.getPackageName(handlerMethod.getBeanType());
+        boolean target = offloadPackages.stream()
+                .anyMatch(p -> packageName.equals(p) || packageName.startsWith(p + "."));
+        return target && !isAsyncReturnType(handlerMethod);
+    }
+
+    private boolean isAsyncReturnType(HandlerMethod handlerMethod) {
+        ResolvableType returnType = ResolvableType.forMethodReturnType(handlerMethod.getMethod());
+        if (HttpEntity.class.isAssignableFrom(returnType.toClass())) {
+            returnType = returnType.getGeneric(); //ResponseEntity<StreamingResponseBody>
+        }
+        Class<?> type = returnType.toClass();
+        return ASYNC_RETURN_TYPES.stream().anyMatch(asyncType -> asyncType.isAssignableFrom(type));
+    }
+
+    private class OffloadingInvocableHandlerMethod extends ServletInvocableHandlerMethod {
+
+        OffloadingInvocableHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public void invokeAndHandle(ServletWebRequest webRequest, ModelAndViewContainer mavContainer,
+                                    Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(webRequest, mavContainer, providedArgs);
+
+            //비동기 디스패치에서는 원래 메서드의 @ResponseStatus 를 보지 않으므로 미리 설정한다.
+            HttpStatus status = getResponseStatus();
+            if (status != null && webRequest.getResponse() != null) {
+                webRequest.getResponse().setStatus(status.value());
+            }
+
+            handlerExecutor.start(WebAsyncUtils.getAsyncManager(webRequest.getRequest()),
+                    () -> doInvoke(args), mavContainer);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * primary / replica DataSource 설정
+ * - jpashop.datasource.replica.enabled=true 일 때만 사용한다. (기본은 spring.datasource 하나)
+ * - primary: spring.datasource.*, spring.datasource.hikari.*
+ * - replica: jpashop.datasource.replica.*, jpashop.datasource.replica.hikari.*
+ */
+@Configuration
+@ConditionalOnProperty(name = "jpashop.datasource.replica.enabled", havingValue = "true")
+public class ReplicationDataSourceConfig {
+
+    /**
+     * DataSourceProperties 빈이 두 개가 되므로 spring.datasource 쪽을 @Primary 로 지정한다.
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("jpashop.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("jpashop.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Qualifier("replicaDataSourceProperties") DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${jpashop.datasource.replica.lag-tolerance-ms:1000}") long lagToleranceMs) {
+        return ReplicationRoutingDataSource.lazy(primary, replica, Duration.ofMillis(lagToleranceMs));
+    }
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기/쓰기 DataSource 라우팅
+ * - @Transactional(readOnly = true) 트랜잭션 -> replica
+ * - 그 외(쓰기 트랜잭션, 트랜잭션 밖) -> primary
+ * - 복제 지연 허용치(lagTolerance): 마지막 쓰기 커밋 후 이 시간 안의 읽기는 primary 로 보낸다.
+ *   방금 쓴 데이터를 replica 에서 못 읽는 문제를 막는다. (애플리케이션 인스턴스 기준)
+ *
+ * 트랜잭션 매니저는 트랜잭션 시작(doBegin) 시점에 커넥션을 얻는데, readOnly 여부는 그 이후에 정해진다.
+ * 그래서 반드시 LazyConnectionDataSourceProxy 로 감싸서 첫 SQL 실행 시점에 커넥션을 고르게 한다. (lazy(...))
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {PRIMARY, REPLICA}
+
+    private final long lagToleranceNanos;
+    private volatile long lastWriteCommittedAt;
+
+    public ReplicationRoutingDataSource(DataSource primary, DataSource replica, Duration lagTolerance) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.lagToleranceNanos = lagTolerance.toNanos();
+        this.lastWriteCommittedAt = System.nanoTime() - lagToleranceNanos - 1;
+    }
+
+    /**
+     * 첫 SQL 시점에 라우팅을 결정하는 DataSource
+     */
+    public static DataSource lazy(DataSource primary, DataSource replica, Duration lagTolerance) {
+        ReplicationRoutingDataSource routing = new ReplicationRoutingDataSource(primary, replica, lagTolerance);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    Route currentRoute() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return withinLagTolerance() ? Route.PRIMARY : Route.REPLICA;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lastWriteCommittedAt = System.nanoTime();
+                }
+            });
+        }
+        return Route.PRIMARY;
+    }
+
+    private boolean withinLagTolerance() {
+        return System.nanoTime() - lastWriteCommittedAt <= lagToleranceNanos;
+    }
+}
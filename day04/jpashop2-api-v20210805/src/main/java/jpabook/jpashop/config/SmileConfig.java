@@ -0,0 +1,46 @@
+package jpabook.jpashop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * 바이너리 응답(Smile) 콘텐츠 협상
+ * - Accept: application/x-jackson-smile 이면 JSON 대신 Smile 로 응답한다.
+ * - 필드 이름(CHECK_SHARED_NAMES)과 짧은 문자열 값(CHECK_SHARED_STRING_VALUES, 64바이트 이하)을
+ *   스트림 안에서 사전으로 공유한다. 상품명, 도시처럼 반복되는 값은 두 번째부터 1~2바이트 참조로 쓴다.
+ * - ObjectMapper 설정(Hibernate5Module, JavaTimeModule 등)은 JSON 과 똑같이 스프링 부트 빌더를 쓴다.
+ */
+@Configuration
+public class SmileConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public SmileConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        ObjectMapper smileMapper = objectMapperBuilder.factory(smileFactory()).build();
+        MappingJackson2SmileHttpMessageConverter smileConverter = new MappingJackson2SmileHttpMessageConverter(smileMapper);
+
+        //스프링 MVC 가 기본으로 등록한 Smile 컨버터(공유 문자열 꺼짐)를 교체한다.
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(smileConverter);
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.config;
+
+import jpabook.jpashop.api.ConditionalGetInterceptor;
+import jpabook.jpashop.service.ChangeVersionTracker;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ChangeVersionTracker changeVersionTracker;
+
+    public WebConfig(ChangeVersionTracker changeVersionTracker) {
+        this.changeVersionTracker = changeVersionTracker;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ConditionalGetInterceptor(changeVersionTracker));
+    }
+}
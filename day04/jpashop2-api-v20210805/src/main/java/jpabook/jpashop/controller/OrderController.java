@@ -1,9 +1,9 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.search.OrderSearchPage;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
@@ -18,6 +18,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
 
+    private static final int PAGE_SIZE = 100;
+
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
@@ -44,9 +46,12 @@ public class OrderController {
     }
 
     @GetMapping("/orders")
-    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
-        model.addAttribute("orders", orders);
+    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch,
+                            @RequestParam(value = "after", required = false) Long after,
+                            Model model) {
+        OrderSearchPage page = orderService.findOrders(orderSearch, after, PAGE_SIZE);
+        model.addAttribute("orders", page.getOrders());
+        model.addAttribute("next", page.getNextOrderId());
 
         return "order/orderList";
     }
@@ -1,8 +1,10 @@
 package jpabook.jpashop.domain;
 
-import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -10,21 +12,30 @@ import java.util.List;
 
 import static javax.persistence.FetchType.*;
 
+/**
+ * 카테고리 트리
+ * - parent/child 인접 리스트와 함께 조상 id 경로(path)를 저장한다. (materialized path)
+ *   ex) 루트 "/", 루트(1)의 자식 "/1/", 그 자식 "/1/5/"
+ * - 하위 트리 전체는 path like '/1/%' 인덱스 범위 조회 한 번으로 찾는다. (CategoryRepository)
+ * - 트리가 바뀌면 커밋 후에 메모리 스냅샷(CategoryTree)을 다시 만든다. (CategoryChangeListener)
+ * - 카테고리에 속한 상품은 CategoryItem 으로 따로 관리한다. (CategoryRepository.addItem, findItems)
+ */
 @Entity
+@Table(indexes = @Index(name = "idx_category_path", columnList = "path"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 @Getter @Setter
 public class Category {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "category_seq")
     @Column(name = "category_id")
     private Long id;
 
     private String name;
 
-    @ManyToMany
-    @JoinTable(name = "category_item",
-            joinColumns = @JoinColumn(name = "category_id"),
-            inverseJoinColumns = @JoinColumn(name = "item_id"))
-    private List<Item> items = new ArrayList<>();
+    @Setter(AccessLevel.NONE)
+    @Column(nullable = false)
+    private String path; //조상 id 경로 "/1/5/"
 
     @ManyToOne(fetch = LAZY)
     @JoinColumn(name = "parent_id")
@@ -37,6 +48,47 @@ public class Category {
     public void addChildCategory(Category child) {
         this.child.add(child);
         child.setParent(this);
+        if (this.id != null) { //아직 저장 전이면 child 를 persist 할 때 계산한다.
+            child.updatePath();
+        }
+    }
+
+    //==조회 로직==//
+    /**
+     * 하위 카테고리 path 의 prefix
+     */
+    public String getSubtreePathPrefix() {
+        return path + id + "/";
+    }
+
+    public int getDepth() {
+        return depth(path);
+    }
+
+    public static int depth(String path) {
+        int depth = -1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * 상위 카테고리는 먼저 저장(persist)되어 식별자가 있어야 한다.
+     * - 이미 하위 카테고리가 있는 카테고리를 옮기면 하위 path 는 CategoryRepository.moveSubtree 로 바꾼다.
+     */
+    @PrePersist
+    void updatePath() {
+        if (parent == null) {
+            path = "/";
+            return;
+        }
+        if (parent.getId() == null) {
+            throw new IllegalStateException("상위 카테고리를 먼저 저장해야 합니다.");
+        }
+        path = parent.getSubtreePathPrefix();
     }
 
 }
@@ -0,0 +1,47 @@
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import static javax.persistence.FetchType.*;
+
+/**
+ * 카테고리 - 상품 연결 엔티티
+ * - @ManyToMany 컬렉션 대신 연결 행(row) 하나를 엔티티로 다룬다.
+ *   카테고리에 상품 하나를 추가/삭제할 때 컬렉션 전체를 읽거나 지우고 다시 넣지 않는다. (INSERT/DELETE 한 건)
+ * - PK (category_id, item_id): 카테고리별 상품 조회
+ *   idx_category_item_item (item_id, category_id): 상품별 카테고리 조회
+ */
+@Entity
+@Table(name = "category_item",
+        indexes = @Index(name = "idx_category_item_item", columnList = "item_id, category_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryItem {
+
+    @EmbeddedId
+    private CategoryItemId id;
+
+    @MapsId("categoryId")
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "category_id")
+    private Category category;
+
+    @MapsId("itemId")
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    //==생성 메서드==//
+    public static CategoryItem createCategoryItem(Category category, Item item) {
+        CategoryItem categoryItem = new CategoryItem();
+        categoryItem.id = new CategoryItemId(category.getId(), item.getId());
+        categoryItem.category = category;
+        categoryItem.item = item;
+        return categoryItem;
+    }
+}
@@ -0,0 +1,31 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+/**
+ * category_item 복합 키 (category_id, item_id)
+ */
+@Embeddable
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryItemId implements Serializable {
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "item_id")
+    private Long itemId;
+
+    public CategoryItemId(Long categoryId, Long itemId) {
+        this.categoryId = categoryId;
+        this.itemId = itemId;
+    }
+}
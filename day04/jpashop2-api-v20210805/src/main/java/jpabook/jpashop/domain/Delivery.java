@@ -12,7 +12,7 @@ import static javax.persistence.FetchType.*;
 @Getter @Setter
 public class Delivery {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "delivery_seq")
     @Column(name = "delivery_id")
     private Long id;
 
@@ -14,12 +14,12 @@ import java.util.List;
 import static javax.persistence.FetchType.*;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_status", columnList = "status, order_id"))
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "orders_seq")
     @Column(name = "order_id")
     private Long id;
 
@@ -39,6 +39,16 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; //주문상태 [ORDER, CANCEL]
 
+    /**
+     * 주문 총액, 주문 수량 합계 (orderItems 를 읽지 않고 목록 화면에서 바로 쓰기 위해 저장)
+     * - addOrderItem 에서만 누적한다. (주문 취소 후에도 주문 당시 금액은 그대로 둔다)
+     */
+    @Setter(AccessLevel.NONE)
+    private int totalPrice;
+
+    @Setter(AccessLevel.NONE)
+    private int itemCount;
+
     //==연관관계 메서드==//
     public void setMember(Member member) {
         this.member = member;
@@ -48,6 +58,8 @@ public class Order {
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
+        totalPrice += orderItem.getTotalPrice();
+        itemCount += orderItem.getCount();
     }
 
     public void setDelivery(Delivery delivery) {
@@ -73,26 +85,22 @@ public class Order {
      * 주문 취소
      */
     public void cancel() {
-        if (delivery.getStatus() == DeliveryStatus.COMP) {
-            throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
-        }
-
-        this.setStatus(OrderStatus.CANCEL);
+        markCanceled();
         for (OrderItem orderItem : orderItems) {
             orderItem.cancel();
         }
     }
 
-    //==조회 로직==//
     /**
-     * 전체 주문 가격 조회
+     * 주문 상태만 취소로 변경
+     * - 재고 복구는 호출한 쪽에서 처리한다. (재고 선점을 쓰는 경우)
      */
-    public int getTotalPrice() {
-        int totalPrice = 0;
-        for (OrderItem orderItem : orderItems) {
-            totalPrice += orderItem.getTotalPrice();
+    public void markCanceled() {
+        if (delivery.getStatus() == DeliveryStatus.COMP) {
+            throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
         }
-        return totalPrice;
+
+        this.setStatus(OrderStatus.CANCEL);
     }
 
 }
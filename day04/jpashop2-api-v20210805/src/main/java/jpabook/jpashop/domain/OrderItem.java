@@ -16,7 +16,7 @@ import static javax.persistence.FetchType.*;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "order_item_seq")
     @Column(name = "order_item_id")
     private Long id;
 
@@ -43,6 +43,18 @@ public class OrderItem {
         return orderItem;
     }
 
+    /**
+     * 재고를 StockReservationService 에서 이미 선점한 경우
+     * - 엔티티의 stockQuantity 는 건드리지 않는다. (재고는 조건부 UPDATE 로 반영)
+     */
+    public static OrderItem createOrderItemWithReservedStock(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
     //==비즈니스 로직==//
     public void cancel() {
         getItem().addStock(count);
@@ -0,0 +1,37 @@
+package jpabook.jpashop.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 공용 식별자 생성 전략 (시퀀스 + pooled-lo)
+ * - 시퀀스를 한 번 호출할 때마다 increment_size 개의 식별자를 메모리에서 나눠 쓴다.
+ * - increment_size 는 애플리케이션 설정 jpashop.id.increment_size 로 바꿀 수 있다. (기본 50)
+ *   spring.jpa.properties.jpashop.id.increment_size: 50
+ *
+ * 엔티티별 제너레이터 등록은 package-info.java 참고
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "jpabook.jpashop.domain.PooledSequenceGenerator";
+    public static final String INCREMENT_SIZE_SETTING = "jpashop.id.increment_size";
+    public static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configurationService = serviceRegistry.getService(ConfigurationService.class);
+        int incrementSize = ConfigurationHelper.getInt(
+                INCREMENT_SIZE_SETTING, configurationService.getSettings(), DEFAULT_INCREMENT_SIZE);
+
+        params.putIfAbsent(INCREMENT_PARAM, String.valueOf(incrementSize));
+        params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
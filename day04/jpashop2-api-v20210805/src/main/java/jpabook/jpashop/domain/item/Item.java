@@ -1,23 +1,29 @@
 package jpabook.jpashop.domain.item;
 
-import jpabook.jpashop.domain.Category;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * 2차 캐시(item 리전)
+ * - Book, Album, Movie 모두 SINGLE_TABLE 이라 루트에만 선언하면 같은 리전을 쓴다.
+ * - READ_WRITE: 재고 변경 등 엔티티 수정은 커밋 시점에 캐시 엔트리도 함께 갱신된다.
+ *   벌크 UPDATE 처럼 엔티티를 거치지 않고 재고를 바꾸면 직접 evict 해야 한다.
+ */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
 @Getter @Setter
 public abstract class Item {
 
-    @Id
-    @GeneratedValue
+    @Id @GeneratedValue(generator = "item_seq")
     @Column(name = "item_id")
     private Long id;
 
@@ -25,9 +31,6 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
-    @ManyToMany(mappedBy = "items")
-    private List<Category> categories = new ArrayList<>();
-
     //==비즈니스 로직==//
     /**
      * stock 증가
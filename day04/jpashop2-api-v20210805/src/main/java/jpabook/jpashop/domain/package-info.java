@@ -0,0 +1,24 @@
+/**
+ * 엔티티 식별자 제너레이터
+ * - 엔티티마다 시퀀스를 따로 쓰고, 모두 PooledSequenceGenerator(pooled-lo) 전략을 공유한다.
+ */
+@GenericGenerators({
+        @GenericGenerator(name = "member_seq", strategy = PooledSequenceGenerator.STRATEGY,
+                parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq")),
+        @GenericGenerator(name = "item_seq", strategy = PooledSequenceGenerator.STRATEGY,
+                parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "item_seq")),
+        @GenericGenerator(name = "category_seq", strategy = PooledSequenceGenerator.STRATEGY,
+                parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "category_seq")),
+        @GenericGenerator(name = "orders_seq", strategy = PooledSequenceGenerator.STRATEGY,
+                parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "orders_seq")),
+        @GenericGenerator(name = "order_item_seq", strategy = PooledSequenceGenerator.STRATEGY,
+                parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "order_item_seq")),
+        @GenericGenerator(name = "delivery_seq", strategy = PooledSequenceGenerator.STRATEGY,
+                parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "delivery_seq"))
+})
+package jpabook.jpashop.domain;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.GenericGenerators;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
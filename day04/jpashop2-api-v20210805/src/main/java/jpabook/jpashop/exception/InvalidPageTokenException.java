@@ -0,0 +1,24 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPageTokenException extends IllegalArgumentException {
+
+    public InvalidPageTokenException() {
+        super();
+    }
+
+    public InvalidPageTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidPageTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidPageTokenException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServerBusyException extends RuntimeException {
+
+    public ServerBusyException() {
+        super();
+    }
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+
+    public ServerBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ServerBusyException(Throwable cause) {
+        super(cause);
+    }
+}
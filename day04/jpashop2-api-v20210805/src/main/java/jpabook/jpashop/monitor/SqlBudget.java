@@ -0,0 +1,23 @@
+package jpabook.jpashop.monitor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * API 하나가 요청당 쓸 수 있는 SQL 예산
+ * - JSON 직렬화 중 지연 로딩까지 포함해서 요청이 끝난 뒤 검사한다.
+ * - 초과하면 경고 로그, jpashop.sql-stats.strict=true 면 SqlBudgetExceededException (테스트용)
+ * - 음수는 검사하지 않는다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    long statements() default -1;
+
+    long entityLoads() default -1;
+
+    long collectionFetches() default -1;
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.monitor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP 요청 하나 동안 실행된 SQL 통계
+ * - statements: prepare statement 수
+ * - entityLoads: DB(또는 2차 캐시)에서 엔티티를 읽은 수
+ * - collectionFetches: 지연 로딩 컬렉션 초기화 수
+ * - jdbcNanos: JDBC 실행 시간 합계
+ *
+ * 요청 스레드 외의 스레드(병렬 조회)에서도 더할 수 있도록 LongAdder 를 쓴다.
+ */
+public final class SqlStatistics {
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder entityLoads = new LongAdder();
+    private final LongAdder collectionFetches = new LongAdder();
+    private final LongAdder jdbcNanos = new LongAdder();
+
+    void statement() {
+        statements.increment();
+    }
+
+    void entityLoad() {
+        entityLoads.increment();
+    }
+
+    void collectionFetch() {
+        collectionFetches.increment();
+    }
+
+    void jdbcTime(long nanos) {
+        jdbcNanos.add(nanos);
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getEntityLoads() {
+        return entityLoads.sum();
+    }
+
+    public long getCollectionFetches() {
+        return collectionFetches.sum();
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + getStatements() +
+                ", entityLoads=" + getEntityLoads() +
+                ", collectionFetches=" + getCollectionFetches() +
+                ", jdbcMillis=" + getJdbcNanos() / 1_000_000;
+    }
+}
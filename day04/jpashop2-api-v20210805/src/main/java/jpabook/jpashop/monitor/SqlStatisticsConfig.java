@@ -0,0 +1,64 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * 요청 단위 SQL 통계 설정
+ * - JDBC 실행: hibernate.session.events.auto 세션 리스너
+ * - 엔티티 로딩, 컬렉션 초기화: Hibernate 이벤트 리스너(POST_LOAD, INIT_COLLECTION)
+ * - 요청 경계, 헤더, 메트릭, @SqlBudget: SqlStatisticsFilter
+ */
+@Configuration
+public class SqlStatisticsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatisticsSessionListener() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                SqlStatisticsSessionListener.class.getName());
+    }
+
+    @Bean
+    public SqlStatisticsFilter sqlStatisticsFilter(
+            MeterRegistry meterRegistry,
+            EntityManagerFactory emf,
+            @Value("${jpashop.sql-stats.strict:false}") boolean strict,
+            @Value("${jpashop.sql-stats.streaming-paths:/api/*/orders/stream}") List<String> streamingPaths,
+            @Qualifier("requestMappingHandlerMapping") HandlerMapping handlerMapping) {
+        registerEventListeners(emf);
+        return new SqlStatisticsFilter(meterRegistry, strict, streamingPaths, handlerMapping);
+    }
+
+    private void registerEventListeners(EntityManagerFactory emf) {
+        EventListenerRegistry listenerRegistry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        listenerRegistry.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> {
+            SqlStatistics statistics = SqlStatisticsHolder.current();
+            if (statistics != null) {
+                statistics.entityLoad();
+            }
+        });
+        listenerRegistry.appendListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) event -> {
+            SqlStatistics statistics = SqlStatisticsHolder.current();
+            if (statistics != null) {
+                statistics.collectionFetch();
+            }
+        });
+    }
+}
@@ -0,0 +1,177 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.exception.SqlBudgetExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 단위 SQL 통계
+ * - 요청마다 SqlStatistics 를 시작하고, 끝나면 응답 헤더와 Micrometer 메트릭으로 내보낸다.
+ *   X-Sql-Statements, X-Sql-Entity-Loads, X-Sql-Collection-Fetches, X-Sql-Jdbc-Time-Ms
+ *   jpashop.sql.statements / entity.loads / collection.fetches / jdbc.time {method, uri}
+ * - 헤더는 JSON 직렬화 중 지연 로딩(FORCE_LAZY_LOADING)까지 세야 하므로 응답 본문을 버퍼에 모았다가 붙인다.
+ *   버퍼링은 헤더가 필요한 요청만 한다. @SqlBudget 이 붙은 API, 또는 요청 헤더 X-Sql-Statistics 가 있는 요청
+ *   그 밖의 요청과 스트리밍 응답(streamingPaths)은 버퍼링하지 않고 메트릭만 남긴다.
+ * - @SqlBudget 이 붙은 API 는 예산 초과 시 경고 로그, strict 모드면 SqlBudgetExceededException
+ *   버퍼링 여부를 응답을 쓰기 전에 정해야 하므로 핸들러는 필터에서 미리 찾는다. (requestMappingHandlerMapping)
+ * - 비동기 요청(HandlerExecutor)은 통계와 버퍼를 요청 속성으로 이어받아서 마지막 디스패치가 끝날 때 내보낸다.
+ */
+@Slf4j
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String STATISTICS_HEADER = "X-Sql-Statistics";
+    private static final String BUDGET_ATTRIBUTE = SqlStatisticsFilter.class.getName() + ".BUDGET";
+    private static final String STATISTICS_ATTRIBUTE = SqlStatisticsFilter.class.getName() + ".STATISTICS";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean strict;
+    private final List<String> streamingPaths;
+    private final HandlerMapping handlerMapping;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public SqlStatisticsFilter(MeterRegistry meterRegistry, boolean strict, List<String> streamingPaths,
+                               HandlerMapping handlerMapping) {
+        this.meterRegistry = meterRegistry;
+        this.strict = strict;
+        this.streamingPaths = streamingPaths;
+        this.handlerMapping = handlerMapping;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!isAsyncDispatch(request)) {
+            findBudget(request);
+        }
+        boolean buffering = !isStreaming(request)
+                && (request.getAttribute(BUDGET_ATTRIBUTE) != null || request.getHeader(STATISTICS_HEADER) != null);
+        ContentCachingResponseWrapper bufferedResponse = buffering ? bufferedResponse(response) : null;
+
+        SqlStatistics statistics = (SqlStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+        if (statistics == null) {
+            statistics = SqlStatisticsHolder.start();
+            request.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+        } else {
+            SqlStatisticsHolder.set(statistics); //비동기 디스패치
+        }
+        try {
+            filterChain.doFilter(request, buffering ? bufferedResponse : response);
+        } finally {
+            SqlStatisticsHolder.clear();
+        }
+
+        if (isAsyncStarted(request)) {
+            return; //핸들러가 다른 스레드에서 실행 중, 비동기 디스패치에서 마무리한다.
+        }
+
+        record(request, statistics);
+        if (!buffering) {
+            checkBudget(request, statistics);
+            return;
+        }
+
+        bufferedResponse.setHeader("X-Sql-Statements", String.valueOf(statistics.getStatements()));
+        bufferedResponse.setHeader("X-Sql-Entity-Loads", String.valueOf(statistics.getEntityLoads()));
+        bufferedResponse.setHeader("X-Sql-Collection-Fetches", String.valueOf(statistics.getCollectionFetches()));
+        bufferedResponse.setHeader("X-Sql-Jdbc-Time-Ms", String.valueOf(TimeUnit.NANOSECONDS.toMillis(statistics.getJdbcNanos())));
+        checkBudget(request, statistics);
+        bufferedResponse.copyBodyToResponse();
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private ContentCachingResponseWrapper bufferedResponse(HttpServletResponse response) {
+        ContentCachingResponseWrapper buffered = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        return buffered != null ? buffered : new ContentCachingResponseWrapper(response);
+    }
+
+    /**
+     * 핸들러 메서드의 @SqlBudget 을 요청 속성에 담는다.
+     * - 매핑 실패(404, 405 등)는 여기서 무시하고 DispatcherServlet 이 처리한다.
+     */
+    private void findBudget(HttpServletRequest request) {
+        try {
+            HandlerExecutionChain chain = handlerMapping.getHandler(request);
+            if (chain != null && chain.getHandler() instanceof HandlerMethod) {
+                SqlBudget budget = ((HandlerMethod) chain.getHandler()).getMethodAnnotation(SqlBudget.class);
+                if (budget != null) {
+                    request.setAttribute(BUDGET_ATTRIBUTE, budget);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("핸들러를 찾지 못했습니다. uri={}", request.getRequestURI(), e);
+        }
+    }
+
+    private boolean isStreaming(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return streamingPaths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    private void record(HttpServletRequest request, SqlStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+
+        summary("jpashop.sql.statements", method, uri).record(statistics.getStatements());
+        summary("jpashop.sql.entity.loads", method, uri).record(statistics.getEntityLoads());
+        summary("jpashop.sql.collection.fetches", method, uri).record(statistics.getCollectionFetches());
+        Timer.builder("jpashop.sql.jdbc.time")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getJdbcNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private DistributionSummary summary(String name, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry);
+    }
+
+    private void checkBudget(HttpServletRequest request, SqlStatistics statistics) {
+        SqlBudget budget = (SqlBudget) request.getAttribute(BUDGET_ATTRIBUTE);
+        if (budget == null) {
+            return;
+        }
+
+        StringBuilder exceeded = new StringBuilder();
+        exceeded(exceeded, "statements", budget.statements(), statistics.getStatements());
+        exceeded(exceeded, "entityLoads", budget.entityLoads(), statistics.getEntityLoads());
+        exceeded(exceeded, "collectionFetches", budget.collectionFetches(), statistics.getCollectionFetches());
+        if (exceeded.length() == 0) {
+            return;
+        }
+
+        String message = "SQL 예산 초과 " + request.getMethod() + " " + request.getRequestURI() + " -" + exceeded;
+        if (strict) {
+            throw new SqlBudgetExceededException(message);
+        }
+        log.warn(message);
+    }
+
+    private void exceeded(StringBuilder exceeded, String name, long budget, long actual) {
+        if (budget >= 0 && actual > budget) {
+            exceeded.append(' ').append(name).append('=').append(actual).append("(예산 ").append(budget).append(')');
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.monitor;
+
+/**
+ * 현재 스레드의 SqlStatistics
+ * - SqlStatisticsFilter 가 요청 시작/종료 시 설정한다.
+ * - 다른 스레드로 작업을 넘길 때는 current() 를 넘겨서 set() 한다.
+ */
+public final class SqlStatisticsHolder {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private SqlStatisticsHolder() {
+    }
+
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * @return 수집 중이 아니면 null
+     */
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void set(SqlStatistics statistics) {
+        if (statistics == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(statistics);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,55 @@
+package jpabook.jpashop.monitor;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * 세션 단위 JDBC 이벤트를 현재 요청의 SqlStatistics 에 더한다.
+ * - hibernate.session.events.auto 로 세션마다 새로 만들어진다. (SqlStatisticsConfig)
+ */
+public class SqlStatisticsSessionListener extends BaseSessionEventListener {
+
+    private long prepareStartedAt;
+    private long executeStartedAt;
+    private long batchStartedAt;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        prepareStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        SqlStatistics statistics = SqlStatisticsHolder.current();
+        if (statistics != null) {
+            statistics.statement();
+            statistics.jdbcTime(System.nanoTime() - prepareStartedAt);
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        addJdbcTime(executeStartedAt);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        addJdbcTime(batchStartedAt);
+    }
+
+    private void addJdbcTime(long startedAt) {
+        SqlStatistics statistics = SqlStatisticsHolder.current();
+        if (statistics != null) {
+            statistics.jdbcTime(System.nanoTime() - startedAt);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.CategoryItem;
+import jpabook.jpashop.domain.CategoryItemId;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    private final EntityManager em;
+
+    /**
+     * 상위 카테고리가 있으면 상위 카테고리를 먼저 저장해야 한다. (path 계산에 상위 id 필요)
+     */
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    public List<Category> findAll() {
+        return em.createQuery("select c from Category c order by c.path, c.id", Category.class)
+                .getResultList();
+    }
+
+    /**
+     * 하위 트리(자기 자신 포함) 전체 카테고리의 상품
+     * - 트리 깊이와 상관없이 path 인덱스 범위 조회 한 번
+     */
+    public List<Item> findItemsInSubtree(Long categoryId) {
+        Category category = findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("존재하지 않는 카테고리입니다. categoryId=" + categoryId);
+        }
+
+        return em.createQuery(
+                "select distinct i from CategoryItem ci" +
+                        " join ci.item i" +
+                        " join ci.category c" +
+                        " where c.id = :categoryId or c.path like :prefix", Item.class)
+                .setParameter("categoryId", categoryId)
+                .setParameter("prefix", category.getSubtreePathPrefix() + "%")
+                .getResultList();
+    }
+
+    /**
+     * 카테고리에 상품 추가 (INSERT 한 건)
+     * @return 이미 속해 있으면 false
+     */
+    public boolean addItem(Long categoryId, Long itemId) {
+        if (em.find(CategoryItem.class, new CategoryItemId(categoryId, itemId)) != null) {
+            return false;
+        }
+        em.persist(CategoryItem.createCategoryItem(
+                em.getReference(Category.class, categoryId), em.getReference(Item.class, itemId)));
+        return true;
+    }
+
+    /**
+     * 카테고리에서 상품 제거 (DELETE 한 건)
+     * @return 속해 있지 않았으면 false
+     */
+    public boolean removeItem(Long categoryId, Long itemId) {
+        return em.createQuery("delete from CategoryItem ci where ci.id = :id")
+                .setParameter("id", new CategoryItemId(categoryId, itemId))
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * 카테고리에 속한 상품 (PK 인덱스 순서로 페이징)
+     */
+    public List<Item> findItems(Long categoryId, int offset, int limit) {
+        return em.createQuery(
+                "select i from CategoryItem ci" +
+                        " join ci.item i" +
+                        " where ci.id.categoryId = :categoryId" +
+                        " order by ci.id.itemId", Item.class)
+                .setParameter("categoryId", categoryId)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public long countItems(Long categoryId) {
+        return em.createQuery(
+                "select count(ci) from CategoryItem ci where ci.id.categoryId = :categoryId", Long.class)
+                .setParameter("categoryId", categoryId)
+                .getSingleResult();
+    }
+
+    /**
+     * 상품이 속한 카테고리 (idx_category_item_item 인덱스)
+     */
+    public List<Category> findCategoriesOfItem(Long itemId) {
+        return em.createQuery(
+                "select c from CategoryItem ci" +
+                        " join ci.category c" +
+                        " where ci.id.itemId = :itemId" +
+                        " order by c.path, c.id", Category.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+    }
+
+    /**
+     * 카테고리를 다른 상위 카테고리로 옮긴다.
+     * - 하위 카테고리들의 path 는 벌크 UPDATE 한 번으로 바꾼다.
+     */
+    public void moveSubtree(Category category, Category newParent) {
+        String oldPrefix = category.getSubtreePathPrefix();
+        if (newParent.getId().equals(category.getId()) || newParent.getSubtreePathPrefix().startsWith(oldPrefix)) {
+            throw new IllegalArgumentException("하위 카테고리 아래로 옮길 수 없습니다.");
+        }
+
+        if (category.getParent() != null) {
+            category.getParent().getChild().remove(category);
+        }
+        newParent.addChildCategory(category);
+        String newPrefix = category.getSubtreePathPrefix();
+
+        em.flush();
+        em.createQuery(
+                "update Category c set c.path = concat(:newPrefix, substring(c.path, :from))" +
+                        " where c.path like :oldPrefix")
+                .setParameter("newPrefix", newPrefix)
+                .setParameter("from", oldPrefix.length() + 1)
+                .setParameter("oldPrefix", oldPrefix + "%")
+                .executeUpdate();
+        em.clear();
+    }
+}
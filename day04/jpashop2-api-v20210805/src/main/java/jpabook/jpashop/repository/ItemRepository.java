@@ -2,15 +2,19 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
+    public static final String QUERY_CACHE_REGION = "query.item";
+
     private final EntityManager em;
 
     public void save(Item item) {
@@ -25,8 +29,20 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 쿼리 캐시(query.item 리전)
+     * - item 테이블이 변경되면(재고 변경 포함) Hibernate 가 결과를 무효화한다.
+     */
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.CACHEABLE, true)
+                .setHint(QueryHints.CACHE_REGION, QUERY_CACHE_REGION)
                 .getResultList();
     }
 }
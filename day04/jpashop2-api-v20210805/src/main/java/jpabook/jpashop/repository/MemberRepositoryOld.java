@@ -2,16 +2,27 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class MemberRepositoryOld {
 
+    private static final String UPDATE_NAME_SQL = "update member set name = ? where member_id = ?";
+
     private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
 
     public void save(Member member) {
         em.persist(member);
@@ -26,9 +37,81 @@ public class MemberRepositoryOld {
                 .getResultList();
     }
 
+    public List<Member> findAllById(Collection<Long> ids) {
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name", Member.class)
                 .setParameter("name", name)
                 .getResultList();
     }
+
+    /**
+     * 엔티티를 만들지 않고 있는지만 확인한다. (uk_member_name 인덱스만 본다)
+     */
+    public boolean existsByName(String name) {
+        return !em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * @return names 중 이미 가입된 이름
+     */
+    public List<String> findExistingNames(Collection<String> names) {
+        return em.createQuery("select m.name from Member m where m.name in :names", String.class)
+                .setParameter("names", names)
+                .getResultList();
+    }
+
+    public void flush() {
+        em.flush();
+    }
+
+    /**
+     * 엔티티를 읽지 않고 이름만 바꾼다. (변경 감지 없이 UPDATE 한 번)
+     * - 쓰기 지연된 변경을 먼저 flush 하고, 영속성 컨텍스트에 남은 예전 값은 clear 로 버린다.
+     * - 엔티티 리스너를 거치지 않는다.
+     *
+     * @return 바뀐 행 수 (없는 회원이면 0)
+     */
+    public int updateName(Long id, String name) {
+        em.flush();
+        int updated = em.createQuery("update Member m set m.name = :name where m.id = :id")
+                .setParameter("name", name)
+                .setParameter("id", id)
+                .executeUpdate();
+        em.clear();
+        return updated;
+    }
+
+    /**
+     * 여러 회원의 이름을 JDBC 배치 UPDATE 한 번으로 바꾼다.
+     * - id 순서로 실행해서 동시에 도는 다른 벌크 수정과 서로 다른 순서로 행을 잠그지 않게 한다.
+     * - 엔티티 리스너를 거치지 않는다.
+     *
+     * @return 실제로 바뀐 회원 id -> 새 이름 (id 순서, 없는 id 는 빠진다)
+     */
+    public Map<Long, String> updateNames(Map<Long, String> names) {
+        em.flush();
+        List<Map.Entry<Long, String>> entries = new ArrayList<>(new TreeMap<>(names).entrySet());
+        List<Object[]> args = entries.stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .collect(Collectors.toList());
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_NAME_SQL, args);
+        em.clear();
+
+        Map<Long, String> updated = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) { //드라이버가 행 수를 안 알려주면 바뀐 것으로 본다.
+                updated.put(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+        return updated;
+    }
 }
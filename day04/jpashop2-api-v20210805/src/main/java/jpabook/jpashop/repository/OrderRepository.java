@@ -1,6 +1,7 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
 
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
@@ -9,7 +10,10 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class OrderRepository {
@@ -128,5 +132,73 @@ public class OrderRepository {
                 .setMaxResults(limit)
                 .getResultList();
     }
-}
 
+    /**
+     * 키셋(seek) 페이징
+     * - offset 대신 마지막으로 읽은 order_id 이후부터 조회 -> 깊은 페이지도 PK 인덱스 범위 스캔으로 일정한 비용
+     * - lastOrderId 가 null 이면 첫 페이지
+     */
+    public List<Order> findAllWithMemberDeliveryAfter(Long lastOrderId, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (lastOrderId != null) {
+            jpql += " where o.id > :lastOrderId";
+        }
+        jpql += " order by o.id";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setMaxResults(limit);
+        if (lastOrderId != null) {
+            query.setParameter("lastOrderId", lastOrderId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 취소 대상 주문 조회 (배송 상태 확인용으로 delivery 까지 fetch join)
+     */
+    public List<Order> findAllWithDelivery(Collection<Long> orderIds) {
+        return em.createQuery(
+                "select o from Order o" +
+                        " join fetch o.delivery d" +
+                        " where o.id in :orderIds", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문 상태를 한 번에 취소로 변경 (벌크 연산)
+     * - 아직 ORDER 상태인 주문만 바꾼다.
+     * - 영속성 컨텍스트를 거치지 않으므로 실행 후 em.clear()
+     */
+    public int bulkCancel(Collection<Long> orderIds) {
+        int updated = em.createQuery(
+                "update Order o set o.status = :cancel" +
+                        " where o.id in :orderIds and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.clear();
+        return updated;
+    }
+
+    /**
+     * 주문들의 상품별 주문 수량 합계 (itemId -> count)
+     */
+    public Map<Long, Integer> sumOrderItemCountByItem(Collection<Long> orderIds) {
+        List<Object[]> rows = em.createQuery(
+                "select oi.item.id, sum(oi.count) from OrderItem oi" +
+                        " where oi.order.id in :orderIds" +
+                        " group by oi.item.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+}
@@ -9,4 +9,11 @@ public class OrderSearch {
 
     private String memberName; //회원 이름
     private OrderStatus orderStatus; //주문 상태[ORDER, CANCEL]
+    private NameMatch nameMatch = NameMatch.PREFIX; //회원 이름 검색 방식
+
+    public enum NameMatch {
+        EXACT,    //m.name = :name
+        PREFIX,   //m.name like 'name%' -> 회원 이름 인덱스 사용 가능
+        CONTAINS  //m.name like '%name%' -> 인덱스 사용 불가, 전체 스캔
+    }
 }
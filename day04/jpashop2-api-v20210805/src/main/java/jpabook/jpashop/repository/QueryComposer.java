@@ -0,0 +1,152 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.monitor.SqlStatistics;
+import jpabook.jpashop.monitor.SqlStatisticsHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 독립적인 DTO 조회 여러 개를 동시에 실행하고 키로 합친다.
+ * - 조회마다 별도 스레드에서 읽기 전용 트랜잭션(커넥션 하나)을 연다.
+ *   전체 응답 시간은 조회 시간의 합이 아니라 가장 느린 조회 시간에 가까워진다.
+ * - 호출한 트랜잭션에서 아직 커밋되지 않은 데이터는 보이지 않는다.
+ * - 동시에 쓰는 커넥션 수는 parallelism 으로 제한한다. 큐가 가득 차면 호출한 스레드에서 실행(back-pressure)
+ * - 하나라도 실패하면 나머지 조회를 취소한다. 아직 시작하지 않은 조회는 실행하지 않고, 실행 중인 조회는 인터럽트한다.
+ *
+ * <pre>
+ * QueryComposer.Composition composition = queryComposer.compose();
+ * CompletableFuture&lt;List&lt;A&gt;&gt; a = composition.fork(() -> findA(ids));
+ * CompletableFuture&lt;List&lt;B&gt;&gt; b = composition.fork(() -> findB(ids));
+ * composition.join();
+ * </pre>
+ */
+@Component
+public class QueryComposer {
+
+    private final TransactionTemplate readOnlyTx;
+    private final ExecutorService executor;
+
+    public QueryComposer(PlatformTransactionManager transactionManager,
+                         @Value("${jpashop.query.compose-parallelism:8}") int parallelism,
+                         @Value("${jpashop.query.compose-timeout-seconds:5}") int timeoutSeconds) {
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setTimeout(timeoutSeconds); //조회 하나가 멈춰도 전체가 무한정 기다리지 않도록
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("query-composer-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 16),
+                threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public Composition compose() {
+        return new Composition();
+    }
+
+    /**
+     * 조회 결과를 키 하나에 값 하나로 모은다.
+     */
+    public static <K, V> Map<K, V> indexBy(Collection<V> values, Function<V, K> key) {
+        Map<K, V> result = new HashMap<>();
+        for (V value : values) {
+            result.put(key.apply(value), value);
+        }
+        return result;
+    }
+
+    /**
+     * 조회 결과를 키 하나에 값 목록으로 모은다.
+     */
+    public static <K, V> Map<K, List<V>> groupBy(Collection<V> values, Function<V, K> key) {
+        Map<K, List<V>> result = new HashMap<>();
+        for (V value : values) {
+            result.computeIfAbsent(key.apply(value), k -> new ArrayList<>()).add(value);
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public final class Composition {
+
+        private final List<CompletableFuture<?>> futures = new ArrayList<>();
+        private final List<Future<?>> tasks = new ArrayList<>();
+
+        private Composition() {
+        }
+
+        /**
+         * 조회를 바로 시작한다. 결과는 join() 이후에 꺼낸다.
+         */
+        public <T> CompletableFuture<T> fork(Supplier<T> query) {
+            SqlStatistics statistics = SqlStatisticsHolder.current(); //요청 단위 SQL 통계에 포함
+            CompletableFuture<T> future = new CompletableFuture<>();
+            futures.add(future);
+            tasks.add(executor.submit(() -> {
+                SqlStatistics previous = SqlStatisticsHolder.current(); //CallerRunsPolicy 면 호출한 스레드
+                SqlStatisticsHolder.set(statistics);
+                try {
+                    future.complete(readOnlyTx.execute(status -> query.get()));
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    SqlStatisticsHolder.set(previous);
+                }
+            }));
+            return future;
+        }
+
+        /**
+         * 모든 조회가 끝날 때까지 기다린다.
+         * - 하나라도 실패하면 나머지는 취소하고 그 예외를 그대로 던진다.
+         *   큐에서 기다리던 조회는 실행되지 않고, 실행 중인 조회는 인터럽트한다.
+         *   (인터럽트를 무시하는 JDBC 호출은 트랜잭션 타임아웃(compose-timeout-seconds)까지 실행될 수 있다)
+         */
+        public void join() {
+            CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+            CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+            futures.forEach(f -> f.whenComplete((result, ex) -> {
+                if (ex != null) {
+                    firstFailure.completeExceptionally(ex);
+                }
+            }));
+
+            try {
+                CompletableFuture.anyOf(all, firstFailure).join(); //실패하면 느린 조회를 기다리지 않는다.
+            } catch (CompletionException e) {
+                tasks.forEach(task -> task.cancel(true));
+                futures.forEach(f -> f.cancel(false)); //실행되지 않은 조회의 결과도 끝낸다.
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+/**
+ * 주문상품이 속한 카테고리 (주문상품 하나가 여러 카테고리에 속할 수 있다)
+ */
+@Data
+public class OrderCategoryQueryDto {
+
+    @JsonIgnore
+    private Long orderId; //주문번호
+    private Long itemId;
+    private Long categoryId;
+    private String name;
+
+    public OrderCategoryQueryDto(Long orderId, Long itemId, Long categoryId, String name) {
+        this.orderId = orderId;
+        this.itemId = itemId;
+        this.categoryId = categoryId;
+        this.name = name;
+    }
+}
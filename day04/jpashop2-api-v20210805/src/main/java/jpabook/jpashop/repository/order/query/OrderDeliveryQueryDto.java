@@ -0,0 +1,23 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import lombok.Data;
+
+@Data
+public class OrderDeliveryQueryDto {
+
+    @JsonIgnore
+    private Long orderId; //주문번호
+    private Long deliveryId;
+    private DeliveryStatus status;
+    private Address address;
+
+    public OrderDeliveryQueryDto(Long orderId, Long deliveryId, DeliveryStatus status, Address address) {
+        this.orderId = orderId;
+        this.deliveryId = deliveryId;
+        this.status = status;
+        this.address = address;
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 주문 상세
+ * - 주문, 회원, 배송, 주문상품, 카테고리를 각각 조회해서 orderId 로 합친다. (OrderDetailQueryRepository)
+ */
+@Data
+@EqualsAndHashCode(of = "orderId")
+public class OrderDetailQueryDto {
+
+    private Long orderId;
+    private LocalDateTime orderDate; //주문시간
+    private OrderStatus orderStatus;
+    private int totalPrice;
+    private OrderMemberQueryDto member;
+    private OrderDeliveryQueryDto delivery;
+    private List<OrderItemQueryDto> orderItems;
+    private List<OrderCategoryQueryDto> categories;
+
+    public OrderDetailQueryDto(Long orderId, LocalDateTime orderDate, OrderStatus orderStatus, int totalPrice) {
+        this.orderId = orderId;
+        this.orderDate = orderDate;
+        this.orderStatus = orderStatus;
+        this.totalPrice = totalPrice;
+    }
+}
@@ -0,0 +1,118 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.repository.QueryComposer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 주문 상세 조회
+ * - 주문, 회원, 배송, 주문상품, 카테고리는 모두 orderId 만 있으면 조회할 수 있으므로 서로 기다리지 않는다.
+ * - QueryComposer 로 5개의 DTO 조회를 동시에 실행하고 orderId 로 합친다.
+ *   (findAllByDto_optimization 은 루트 조회 후 컬렉션 조회를 순서대로 실행한다)
+ * Query: 5번 (동시에 실행, 각각 별도 커넥션)
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderDetailQueryRepository {
+
+    private final EntityManager em;
+    private final QueryComposer queryComposer;
+
+    public Optional<OrderDetailQueryDto> findOrderDetail(Long orderId) {
+        List<OrderDetailQueryDto> result = findOrderDetails(Collections.singletonList(orderId));
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * @return orderIds 중 존재하는 주문만, orderId 순
+     */
+    public List<OrderDetailQueryDto> findOrderDetails(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        QueryComposer.Composition composition = queryComposer.compose();
+        CompletableFuture<List<OrderDetailQueryDto>> orders = composition.fork(() -> findOrders(orderIds));
+        CompletableFuture<List<OrderMemberQueryDto>> members = composition.fork(() -> findMembers(orderIds));
+        CompletableFuture<List<OrderDeliveryQueryDto>> deliveries = composition.fork(() -> findDeliveries(orderIds));
+        CompletableFuture<List<OrderItemQueryDto>> orderItems = composition.fork(() -> findOrderItems(orderIds));
+        CompletableFuture<List<OrderCategoryQueryDto>> categories = composition.fork(() -> findCategories(orderIds));
+        composition.join();
+
+        Map<Long, OrderMemberQueryDto> memberMap = QueryComposer.indexBy(members.join(), OrderMemberQueryDto::getOrderId);
+        Map<Long, OrderDeliveryQueryDto> deliveryMap = QueryComposer.indexBy(deliveries.join(), OrderDeliveryQueryDto::getOrderId);
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = QueryComposer.groupBy(orderItems.join(), OrderItemQueryDto::getOrderId);
+        Map<Long, List<OrderCategoryQueryDto>> categoryMap = QueryComposer.groupBy(categories.join(), OrderCategoryQueryDto::getOrderId);
+
+        List<OrderDetailQueryDto> result = orders.join();
+        result.forEach(o -> {
+            o.setMember(memberMap.get(o.getOrderId()));
+            o.setDelivery(deliveryMap.get(o.getOrderId()));
+            o.setOrderItems(orderItemMap.getOrDefault(o.getOrderId(), new ArrayList<>()));
+            o.setCategories(categoryMap.getOrDefault(o.getOrderId(), new ArrayList<>()));
+        });
+        return result;
+    }
+
+    private List<OrderDetailQueryDto> findOrders(Collection<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderDetailQueryDto(o.id, o.orderDate, o.status, o.totalPrice)" +
+                        " from Order o" +
+                        " where o.id in :orderIds" +
+                        " order by o.id", OrderDetailQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private List<OrderMemberQueryDto> findMembers(Collection<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderMemberQueryDto(o.id, m.id, m.name, m.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " where o.id in :orderIds", OrderMemberQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private List<OrderDeliveryQueryDto> findDeliveries(Collection<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderDeliveryQueryDto(o.id, d.id, d.status, d.address)" +
+                        " from Order o" +
+                        " join o.delivery d" +
+                        " where o.id in :orderIds", OrderDeliveryQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private List<OrderItemQueryDto> findOrderItems(Collection<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds" +
+                        " order by oi.id", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private List<OrderCategoryQueryDto> findCategories(Collection<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderCategoryQueryDto(oi.order.id, ci.item.id, c.id, c.name)" +
+                        " from OrderItem oi, CategoryItem ci" +
+                        " join ci.category c" +
+                        " where ci.item.id = oi.item.id" +
+                        " and oi.order.id in :orderIds" +
+                        " order by oi.id, c.id", OrderCategoryQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+}
@@ -0,0 +1,44 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 플랫 데이터(OrderFlatDto) -> OrderQueryDto 조립
+ * - order_id 로 정렬된 row 를 한 번만 훑으면서 연속된 row 를 하나의 OrderQueryDto 로 접는다.
+ * - groupingBy 처럼 중간 Map 이나 키용 DTO 를 만들지 않고, SQL 정렬 순서도 그대로 유지된다.
+ * - 입력은 반드시 order_id 기준으로 정렬되어 있어야 한다.
+ */
+public final class OrderFlatAssembler {
+
+    private OrderFlatAssembler() {
+    }
+
+    public static List<OrderQueryDto> assemble(List<OrderFlatDto> flats) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        assemble(flats, result::add);
+        return result;
+    }
+
+    /**
+     * 주문 하나가 완성될 때마다 consumer 에 넘긴다.
+     */
+    public static void assemble(Iterable<OrderFlatDto> flats, Consumer<OrderQueryDto> consumer) {
+        OrderQueryDto current = null;
+        for (OrderFlatDto flat : flats) {
+            if (current == null || !current.getOrderId().equals(flat.getOrderId())) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = new OrderQueryDto(flat.getOrderId(), flat.getName(), flat.getOrderDate(),
+                        flat.getOrderStatus(), flat.getAddress(), new ArrayList<>());
+            }
+            current.getOrderItems().add(
+                    new OrderItemQueryDto(flat.getOrderId(), flat.getItemName(), flat.getOrderPrice(), flat.getCount()));
+        }
+        if (current != null) {
+            consumer.accept(current);
+        }
+    }
+}
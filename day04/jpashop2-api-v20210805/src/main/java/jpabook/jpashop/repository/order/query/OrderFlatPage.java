@@ -0,0 +1,25 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 플랫 데이터 키셋 페이지
+ * - 다음 페이지 유무와 다음 order_id 는 조립한 주문이 아니라 먼저 조회한 order_id 목록으로 정한다.
+ *   (주문상품이 없는 주문은 플랫 데이터 조인에서 빠지므로 orders 에 없을 수 있다)
+ */
+@Getter
+public class OrderFlatPage {
+
+    private final List<OrderQueryDto> orders;
+    /**
+     * 다음 페이지를 조회할 때 넘길 order_id, 마지막 페이지면 null
+     */
+    private final Long nextOrderId;
+
+    public OrderFlatPage(List<OrderQueryDto> orders, Long nextOrderId) {
+        this.orders = orders;
+        this.nextOrderId = nextOrderId;
+    }
+}
@@ -0,0 +1,160 @@
+package jpabook.jpashop.repository.order.query;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * orderItem 컬렉션 IN 쿼리 분할 조회
+ * - order_id 가 수만 건이면 IN 절 하나로는 SQL 이 너무 커지고, 목록 크기마다 실행 계획이 새로 만들어진다.
+ * - chunkSize(2의 거듭제곱) 단위로 잘라서 조회하고, 마지막 chunk 는
+ *   hibernate.query.in_clause_parameter_padding 으로 2의 거듭제곱 크기로 채워서 실행 계획을 재사용한다.
+ * - chunk 가 여러 개면 크기가 제한된 executor 에서 병렬로 조회한 뒤 결과를 하나의 Map 으로 합친다.
+ *   병렬 조회는 chunk 마다 별도의 EntityManager(커넥션)를 쓰므로, 호출한 트랜잭션에서 아직 커밋되지 않은 데이터는 보이지 않는다.
+ * - 추가 커넥션은 요청 수와 상관없이 애플리케이션 전체에서 parallelism 개까지만 쓴다. (permit)
+ *   permit 을 못 얻은 chunk 는 기다리지 않고 호출한 스레드가 자기 EntityManager(이미 가진 커넥션)로 차례대로 조회한다.
+ *   요청이 자기 커넥션을 쥔 채로 다른 커넥션을 기다리다가 커넥션 풀이 바닥나는 일이 없다.
+ */
+@Component
+public class OrderItemQueryLoader {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final Semaphore connectionPermits;
+
+    public OrderItemQueryLoader(EntityManager em,
+                                EntityManagerFactory emf,
+                                @Value("${jpashop.query.in-chunk-size:512}") int chunkSize,
+                                @Value("${jpashop.query.in-parallelism:4}") int parallelism) {
+        this.em = em;
+        this.emf = emf;
+        this.chunkSize = Integer.highestOneBit(Math.max(chunkSize, 1)); //2의 거듭제곱으로 내림
+        this.connectionPermits = new Semaphore(parallelism);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("order-item-query-");
+        threadFactory.setDaemon(true);
+        //permit 을 얻은 조회만 제출하므로 큐에 parallelism 개보다 많이 쌓이지 않는다.
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism),
+                threadFactory);
+    }
+
+    public Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        Map<Long, List<OrderItemQueryDto>> result = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return result;
+        }
+
+        //chunk 가 하나면 기존처럼 현재 영속성 컨텍스트에서 바로 조회
+        if (orderIds.size() <= chunkSize) {
+            merge(result, findOrderItems(em, orderIds));
+            return result;
+        }
+
+        List<CompletableFuture<List<OrderItemQueryDto>>> futures = new ArrayList<>();
+        List<List<Long>> callerChunks = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += chunkSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + chunkSize, orderIds.size()));
+            CompletableFuture<List<OrderItemQueryDto>> future = submit(chunk);
+            if (future == null) {
+                callerChunks.add(chunk);
+            } else {
+                futures.add(future);
+            }
+        }
+
+        try {
+            for (List<Long> chunk : callerChunks) {
+                merge(result, findOrderItems(em, chunk)); //병렬 조회와 겹쳐서 실행된다.
+            }
+            for (CompletableFuture<List<OrderItemQueryDto>> future : futures) {
+                merge(result, future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false)); //큐에서 기다리던 조회는 실행하지 않는다. 실행 중인 조회는 끝까지 간다.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * permit 은 결과가 아니라 작업이 반환한다.
+     * 결과가 먼저 취소돼도 작업은 큐에서 꺼내져 실행되므로, 조회는 건너뛰고 permit 만 돌려준다.
+     *
+     * @return 추가 커넥션 permit 이 없으면 null (호출한 스레드에서 조회)
+     */
+    private CompletableFuture<List<OrderItemQueryDto>> submit(List<Long> chunk) {
+        if (!connectionPermits.tryAcquire()) {
+            return null;
+        }
+        CompletableFuture<List<OrderItemQueryDto>> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!future.isDone()) {
+                        future.complete(findOrderItemsInNewEntityManager(chunk));
+                    }
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    connectionPermits.release();
+                }
+            });
+            return future;
+        } catch (RejectedExecutionException e) {
+            connectionPermits.release(); //종료 중
+            return null;
+        }
+    }
+
+    private List<OrderItemQueryDto> findOrderItemsInNewEntityManager(List<Long> orderIds) {
+        EntityManager chunkEm = emf.createEntityManager();
+        try {
+            return findOrderItems(chunkEm, orderIds);
+        } finally {
+            chunkEm.close();
+        }
+    }
+
+    private List<OrderItemQueryDto> findOrderItems(EntityManager em, List<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private void merge(Map<Long, List<OrderItemQueryDto>> result, List<OrderItemQueryDto> orderItems) {
+        for (OrderItemQueryDto orderItem : orderItems) {
+            result.computeIfAbsent(orderItem.getOrderId(), k -> new ArrayList<>()).add(orderItem);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
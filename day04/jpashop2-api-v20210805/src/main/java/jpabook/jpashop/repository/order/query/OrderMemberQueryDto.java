@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.Address;
+import lombok.Data;
+
+@Data
+public class OrderMemberQueryDto {
+
+    @JsonIgnore
+    private Long orderId; //주문번호
+    private Long memberId;
+    private String name;
+    private Address address;
+
+    public OrderMemberQueryDto(Long orderId, Long memberId, String name, Address address) {
+        this.orderId = orderId;
+        this.memberId = memberId;
+        this.name = name;
+        this.address = address;
+    }
+}
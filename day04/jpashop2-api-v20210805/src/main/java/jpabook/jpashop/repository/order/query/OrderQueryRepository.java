@@ -1,11 +1,17 @@
 package jpabook.jpashop.repository.order.query;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -13,6 +19,7 @@ import java.util.stream.Collectors;
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final OrderItemQueryLoader orderItemQueryLoader;
 
     /**
      * 컬렉션은 별도로 조회
@@ -82,17 +89,59 @@ public class OrderQueryRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * orderItem 컬렉션을 Map 으로 조회
+     * - order_id 가 많으면 OrderItemQueryLoader 에서 chunk 로 나눠서 조회
+     */
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                        " join oi.item i" +
-                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
-                .setParameter("orderIds", orderIds)
-                .getResultList();
+        return orderItemQueryLoader.findOrderItemMap(orderIds);
+    }
 
-        return orderItems.stream()
-                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+    /**
+     * 스트리밍 조회
+     * - 루트는 forward-only 커서(ScrollableResults)와 fetch size 로 조금씩 읽는다.
+     * - chunkSize 건마다 orderItem 컬렉션을 IN 쿼리 1번으로 채워서(V5 방식) consumer 에 넘긴다.
+     * - chunk 를 넘긴 뒤 영속성 컨텍스트를 비워서 전체 건수와 상관없이 메모리 사용량을 일정하게 유지한다.
+     * Query: chunk 당 컬렉션 1번 (루트는 커서 1개)
+     */
+    @Transactional(readOnly = true)
+    public void streamAllByDto(int fetchSize, int chunkSize, Consumer<List<OrderQueryDto>> consumer) {
+        @SuppressWarnings("unchecked")
+        Query<OrderQueryDto> query = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " order by o.id", OrderQueryDto.class)
+                .unwrap(Query.class);
+
+        ScrollableResults results = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            List<OrderQueryDto> chunk = new ArrayList<>(chunkSize);
+            while (results.next()) {
+                chunk.add((OrderQueryDto) results.get(0));
+                if (chunk.size() == chunkSize) {
+                    flushChunk(chunk, consumer);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                flushChunk(chunk, consumer);
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    private void flushChunk(List<OrderQueryDto> chunk, Consumer<List<OrderQueryDto>> consumer) {
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(chunk));
+        chunk.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+
+        consumer.accept(chunk);
+        em.clear();
     }
 
     public List<OrderFlatDto> findAllByDto_flat() {
@@ -105,4 +154,65 @@ public class OrderQueryRepository {
                         " join oi.item i", OrderFlatDto.class)
                 .getResultList();
     }
+
+    /**
+     * 플랫 데이터를 order_id 순으로 조회
+     * - OrderFlatAssembler 로 한 번에 훑어서 조립할 수 있도록 정렬해서 가져온다.
+     */
+    public List<OrderFlatDto> findAllByDto_flatOrderById() {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " order by o.id, oi.id", OrderFlatDto.class)
+                .getResultList();
+    }
+
+    /**
+     * 플랫 데이터 키셋 페이징
+     * - row 단위로 limit 을 걸면 주문 중간에서 잘리기 때문에, 먼저 order_id 범위를 limit 만큼 조회하고
+     *   해당 주문들의 플랫 데이터를 order_id 순으로 가져와 조립한다.
+     * - 다음 order_id 는 order_id 목록에서 정한다. (OrderFlatPage)
+     * Query: order_id 1번, 플랫 데이터 1번
+     */
+    public OrderFlatPage findAllByDto_flat(Long lastOrderId, int limit) {
+        List<Long> orderIds = findOrderIdsAfter(lastOrderId, limit + 1); //다음 페이지 유무 확인용 1건
+        boolean hasNext = orderIds.size() > limit;
+        if (hasNext) {
+            orderIds = orderIds.subList(0, limit);
+        }
+        if (orderIds.isEmpty()) {
+            return new OrderFlatPage(new ArrayList<>(), null);
+        }
+
+        List<OrderFlatDto> flats = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " where o.id in :orderIds" +
+                        " order by o.id, oi.id", OrderFlatDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+
+        Long nextOrderId = hasNext ? orderIds.get(orderIds.size() - 1) : null;
+        return new OrderFlatPage(OrderFlatAssembler.assemble(flats), nextOrderId);
+    }
+
+    private List<Long> findOrderIdsAfter(Long lastOrderId, int limit) {
+        if (lastOrderId == null) {
+            return em.createQuery("select o.id from Order o order by o.id", Long.class)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        return em.createQuery("select o.id from Order o where o.id > :lastOrderId order by o.id", Long.class)
+                .setParameter("lastOrderId", lastOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package jpabook.jpashop.repository.order.search;
+
+import jpabook.jpashop.domain.Order;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 주문 검색 키셋 페이지
+ */
+@Getter
+public class OrderSearchPage {
+
+    private final List<Order> orders;
+    private final boolean hasNext;
+
+    public OrderSearchPage(List<Order> orders, boolean hasNext) {
+        this.orders = orders;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * @return 다음 페이지를 조회할 때 넘길 order_id, 마지막 페이지면 null
+     */
+    public Long getNextOrderId() {
+        return hasNext ? orders.get(orders.size() - 1).getId() : null;
+    }
+}
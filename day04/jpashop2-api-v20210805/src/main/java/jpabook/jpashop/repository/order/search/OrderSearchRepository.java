@@ -0,0 +1,130 @@
+package jpabook.jpashop.repository.order.search;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearch.NameMatch;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 주문 검색
+ * - findAllByString, findAllByCriteria 처럼 요청마다 JPQL, Criteria 를 새로 만들지 않는다.
+ *   있는 필터 조합(shape)마다 파라미터 바인딩 JPQL 을 한 번만 만들어서 캐시한다.
+ *   JPQL 문자열이 조합 수(최대 12개)만큼만 생기므로 Hibernate 쿼리 플랜 캐시, DB 실행 계획도 재사용된다.
+ * - 회원 이름은 기본이 앞부분 일치(uk_member_name 인덱스 사용), CONTAINS 는 인덱스를 못 쓴다.
+ * - 상태 검색은 idx_orders_status(status, order_id) 로 상태 범위 안에서 order_id 순으로 읽는다.
+ * - 최대 1000건에서 자르지 않고 order_id 키셋 페이지로 조회한다.
+ */
+@Repository
+public class OrderSearchRepository {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int STATUS = 1;
+    private static final int NAME_EXACT = 1 << 1;
+    private static final int NAME_LIKE = 1 << 2;
+    private static final int AFTER = 1 << 3;
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private final EntityManager em;
+    private final Map<Integer, String> jpqlByShape = new ConcurrentHashMap<>();
+
+    public OrderSearchRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * @param lastOrderId 이전 페이지의 마지막 order_id, 첫 페이지면 null
+     * @param limit 페이지 크기 (1 ~ MAX_PAGE_SIZE)
+     */
+    public OrderSearchPage search(OrderSearch orderSearch, Long lastOrderId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String name = StringUtils.hasText(orderSearch.getMemberName()) ? orderSearch.getMemberName().trim() : null;
+        NameMatch nameMatch = orderSearch.getNameMatch() == null ? NameMatch.PREFIX : orderSearch.getNameMatch();
+
+        int shape = 0;
+        if (orderSearch.getOrderStatus() != null) {
+            shape |= STATUS;
+        }
+        if (name != null) {
+            shape |= nameMatch == NameMatch.EXACT ? NAME_EXACT : NAME_LIKE;
+        }
+        if (lastOrderId != null) {
+            shape |= AFTER;
+        }
+
+        TypedQuery<Order> query = em.createQuery(jpqlByShape.computeIfAbsent(shape, OrderSearchRepository::jpql), Order.class)
+                .setMaxResults(pageSize + 1); //다음 페이지 유무 확인용 1건
+        if ((shape & STATUS) != 0) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if ((shape & NAME_EXACT) != 0) {
+            query.setParameter("name", name);
+        }
+        if ((shape & NAME_LIKE) != 0) {
+            String escaped = escapeLike(name);
+            query.setParameter("name", nameMatch == NameMatch.CONTAINS ? "%" + escaped + "%" : escaped + "%");
+        }
+        if ((shape & AFTER) != 0) {
+            query.setParameter("lastOrderId", lastOrderId);
+        }
+
+        List<Order> orders = query.getResultList();
+        boolean hasNext = orders.size() > pageSize;
+        if (hasNext) {
+            orders = new ArrayList<>(orders.subList(0, pageSize));
+        }
+        return new OrderSearchPage(orders, hasNext);
+    }
+
+    /**
+     * 지금까지 만들어진 쿼리 모양 수
+     */
+    public int cachedShapeCount() {
+        return jpqlByShape.size();
+    }
+
+    private static String jpql(int shape) {
+        List<String> predicates = new ArrayList<>();
+        if ((shape & STATUS) != 0) {
+            predicates.add("o.status = :status");
+        }
+        if ((shape & NAME_EXACT) != 0) {
+            predicates.add("m.name = :name");
+        }
+        if ((shape & NAME_LIKE) != 0) {
+            predicates.add("m.name like :name escape '" + LIKE_ESCAPE + "'");
+        }
+        if ((shape & AFTER) != 0) {
+            predicates.add("o.id > :lastOrderId");
+        }
+
+        StringBuilder jpql = new StringBuilder("select o from Order o join fetch o.member m");
+        if (!predicates.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", predicates));
+        }
+        return jpql.append(" order by o.id").toString();
+    }
+
+    /**
+     * 검색어의 %, _ 는 와일드카드가 아니라 문자로 찾는다.
+     */
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (char c : value.toCharArray()) {
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
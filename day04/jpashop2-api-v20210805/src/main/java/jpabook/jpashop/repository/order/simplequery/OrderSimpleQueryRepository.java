@@ -20,4 +20,12 @@ public class OrderSimpleQueryRepository {
                         " join o.delivery d", OrderSimpleQueryDto.class)
                 .getResultList();
     }
-}
\ No newline at end of file
+
+    public List<OrderSummaryQueryDto> findOrderSummaries() {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.simplequery.OrderSummaryQueryDto(o.id, m.name, o.orderDate, o.status, o.totalPrice, o.itemCount)" +
+                        " from Order o" +
+                        " join o.member m", OrderSummaryQueryDto.class)
+                .getResultList();
+    }
+}
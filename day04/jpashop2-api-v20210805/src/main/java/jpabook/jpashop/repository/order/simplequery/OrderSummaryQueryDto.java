@@ -0,0 +1,30 @@
+package jpabook.jpashop.repository.order.simplequery;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 화면용 요약
+ * - orders 에 저장된 total_price, item_count 를 그대로 쓰므로 order_item 을 조회하지 않는다.
+ */
+@Data
+public class OrderSummaryQueryDto {
+
+    private Long orderId;
+    private String name;
+    private LocalDateTime orderDate; //주문시간
+    private OrderStatus orderStatus;
+    private int totalPrice; //주문 총액
+    private int itemCount; //주문 수량 합계
+
+    public OrderSummaryQueryDto(Long orderId, String name, LocalDateTime orderDate, OrderStatus orderStatus, int totalPrice, int itemCount) {
+        this.orderId = orderId;
+        this.name = name;
+        this.orderDate = orderDate;
+        this.orderStatus = orderStatus;
+        this.totalPrice = totalPrice;
+        this.itemCount = itemCount;
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import lombok.Getter;
+
+/**
+ * 검색 인덱스에 반영할 값
+ * - 엔티티 이벤트 시점에 필요한 값만 복사해 두고 커밋 후 인덱스에 반영한다.
+ */
+@Getter
+public final class SearchDocument {
+
+    public enum Type {
+        MEMBER, ITEM
+    }
+
+    private final Type type;
+    private final Long id;
+    private final String name;
+    private final String author;
+    private final String isbn;
+    private final boolean deleted;
+
+    private SearchDocument(Type type, Long id, String name, String author, String isbn, boolean deleted) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.author = author;
+        this.isbn = isbn;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return 인덱스 대상이 아니면 null
+     */
+    public static SearchDocument of(Object entity) {
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            return member(member.getId(), member.getName());
+        }
+        if (entity instanceof Book) {
+            Book book = (Book) entity;
+            return new SearchDocument(Type.ITEM, book.getId(), book.getName(), book.getAuthor(), book.getIsbn(), false);
+        }
+        if (entity instanceof Item) {
+            Item item = (Item) entity;
+            return new SearchDocument(Type.ITEM, item.getId(), item.getName(), null, null, false);
+        }
+        return null;
+    }
+
+    /**
+     * 엔티티 없이 바꾼 회원 (벌크 UPDATE 는 엔티티 리스너를 거치지 않는다)
+     */
+    public static SearchDocument member(Long id, String name) {
+        return new SearchDocument(Type.MEMBER, id, name, null, null, false);
+    }
+
+    public static SearchDocument deleted(Type type, Long id) {
+        return new SearchDocument(type, id, null, null, null, true);
+    }
+
+    public SearchDocument toDeleted() {
+        return deleted(type, id);
+    }
+
+    public String key() {
+        return type.name() + ":" + id;
+    }
+}
@@ -0,0 +1,431 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.search.SearchDocument.Type;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 이름, 상품 이름, 도서 저자/ISBN 전문 검색 인덱스 (Lucene, 로컬 디스크)
+ * - 엔티티 변경은 커밋 후 IndexWriter 에 반영한다. (SearchIndexListener)
+ * - 검색 결과는 refresh-interval 마다 다시 열리는 NRT searcher 로 보인다. 디스크 commit 은 commit-interval 마다
+ * - 검색은 id 만 돌려준다. 엔티티는 id IN 쿼리 한 번으로 읽는다. (SearchService)
+ * - 재생성(beginRebuild ~ finishRebuild) 중에는 refresh, commit 을 하지 않는다.
+ *   비었거나 반쯤 찬 인덱스가 검색이나 디스크에 보이지 않고, 검색은 재생성 전 인덱스를 본다.
+ *   재생성 중 update() 로 반영한 키는 재생성 chunk(updateForRebuild)가 덮어쓰지 않는다. (chunk 는 그보다 먼저 읽은 값일 수 있다)
+ *
+ * 필드
+ * - name: 단어 단위(StandardAnalyzer), 단어 일치/앞부분 일치
+ * - name_ngram: 2-gram, 한글 이름처럼 띄어쓰기 없는 값의 중간 일치 ("길동" -> "홍길동")
+ * - author: 단어 단위, isbn: '-' 를 뺀 값 그대로
+ */
+@Slf4j
+@Component
+public class SearchIndex {
+
+    static final String KEY = "key";
+    static final String TYPE = "type";
+    static final String ID = "id";
+    static final String NAME = "name";
+    static final String NAME_NGRAM = "name_ngram";
+    static final String AUTHOR = "author";
+    static final String ISBN = "isbn";
+
+    private final Path path;
+    private final boolean temporary;
+    private final boolean created;
+    private final FSDirectory directory;
+    private final Analyzer analyzer;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * rebuilding 확인과 refresh/commit 을 묶는다. (확인한 뒤 재생성이 시작되어 빈 인덱스를 여는 일이 없도록)
+     */
+    private final Object publishLock = new Object();
+    /**
+     * update() 와 재생성 chunk 반영을 묶는다. 락 순서는 rebuildLock -> publishLock
+     */
+    private final Object rebuildLock = new Object();
+    private boolean rebuilding;
+    private final Set<String> updatedDuringRebuild = new HashSet<>();
+
+    public SearchIndex(@Value("${jpashop.search.index-dir:}") String indexDir,
+                       @Value("${jpashop.search.refresh-interval-ms:200}") long refreshIntervalMs,
+                       @Value("${jpashop.search.commit-interval-ms:5000}") long commitIntervalMs) throws IOException {
+        //경로가 없으면 컨텍스트마다 임시 디렉터리 (같은 디렉터리는 IndexWriter 하나만 열 수 있다)
+        this.temporary = !StringUtils.hasText(indexDir);
+        this.path = temporary ? Files.createTempDirectory("jpashop-search") : Files.createDirectories(Paths.get(indexDir));
+        this.directory = FSDirectory.open(path);
+        this.created = !DirectoryReader.indexExists(directory);
+
+        this.analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(CharArraySet.EMPTY_SET),
+                Map.of(NAME_NGRAM, bigramAnalyzer()));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::commitQuietly, commitIntervalMs, commitIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("검색 인덱스 path={}, created={}", path, created);
+    }
+
+    /**
+     * 이번 기동에서 새로 만든 인덱스인지 (디스크에 이전 인덱스가 없었음)
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 반영한다. (트랜잭션 밖이면 바로)
+     * - 같은 엔티티를 한 트랜잭션에서 여러 번 바꾸면 마지막 값만 반영한다.
+     */
+    @SuppressWarnings("unchecked")
+    public void updateAfterCommit(SearchDocument document) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(List.of(document));
+            return;
+        }
+
+        Map<String, SearchDocument> changed = (Map<String, SearchDocument>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Map<String, SearchDocument> pending = new LinkedHashMap<>();
+            changed = pending;
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(pending.values());
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SearchIndex.this);
+                }
+            });
+        }
+        changed.put(document.key(), document);
+    }
+
+    public void update(Collection<SearchDocument> documents) {
+        synchronized (rebuildLock) {
+            if (rebuilding) {
+                documents.forEach(document -> updatedDuringRebuild.add(document.key()));
+            }
+            write(documents);
+        }
+    }
+
+    /**
+     * 재생성 chunk 를 반영한다. 재생성 중 update() 로 이미 반영한 키는 건너뛴다.
+     */
+    public void updateForRebuild(Collection<SearchDocument> documents) {
+        synchronized (rebuildLock) {
+            List<SearchDocument> notUpdated = new ArrayList<>(documents.size());
+            for (SearchDocument document : documents) {
+                if (!updatedDuringRebuild.contains(document.key())) {
+                    notUpdated.add(document);
+                }
+            }
+            write(notUpdated);
+        }
+    }
+
+    private void write(Collection<SearchDocument> documents) {
+        try {
+            for (SearchDocument document : documents) {
+                Term key = new Term(KEY, document.key());
+                if (document.isDeleted()) {
+                    writer.deleteDocuments(key);
+                } else {
+                    writer.updateDocument(key, toLuceneDocument(document));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void deleteAll() {
+        try {
+            writer.deleteAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 재생성을 시작한다. 인덱스를 비우고, finishRebuild 전까지 refresh, commit 을 멈춘다.
+     * 그 사이 update() 로 들어온 변경도 finishRebuild 때 함께 보인다.
+     */
+    public void beginRebuild() {
+        synchronized (rebuildLock) {
+            synchronized (publishLock) {
+                rebuilding = true;
+            }
+            updatedDuringRebuild.clear();
+            deleteAll();
+        }
+    }
+
+    /**
+     * 재생성한 인덱스를 commit 하고 검색에 보이게 한다.
+     * 재생성이 중간에 실패해서 호출되지 않으면 다음 재생성이 끝날 때까지 검색은 재생성 전 인덱스를 본다.
+     */
+    public void finishRebuild() {
+        synchronized (rebuildLock) {
+            synchronized (publishLock) {
+                try {
+                    writer.commit();
+                    rebuilding = false;
+                    searcherManager.maybeRefreshBlocking();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            updatedDuringRebuild.clear();
+        }
+    }
+
+    /**
+     * @return 점수 순 id (최대 limit 개, 1 보다 작으면 1), 검색어가 비어 있으면 빈 목록
+     */
+    public List<Long> search(Type type, String text, int limit) {
+        List<String> tokens = analyze(NAME, text);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        BooleanQuery.Builder any = new BooleanQuery.Builder()
+                .add(allTokens(NAME, tokens, true), Occur.SHOULD);
+        if (type == Type.ITEM) {
+            any.add(allTokens(AUTHOR, tokens, false), Occur.SHOULD);
+            any.add(new TermQuery(new Term(ISBN, normalizeIsbn(text))), Occur.SHOULD);
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(TYPE, type.name())), Occur.FILTER)
+                .add(any.build(), Occur.MUST)
+                .build();
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                List<Long> ids = new ArrayList<>();
+                for (ScoreDoc hit : searcher.search(query, Math.max(1, limit)).scoreDocs) {
+                    ids.add(searcher.doc(hit.doc).getField(ID).numericValue().longValue());
+                }
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 지금까지 반영한 변경이 검색에 보이도록 searcher 를 다시 연다.
+     */
+    public void refresh() {
+        synchronized (publishLock) {
+            if (rebuilding) {
+                return;
+            }
+            try {
+                searcherManager.maybeRefreshBlocking();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public void commit() {
+        synchronized (publishLock) {
+            if (rebuilding) {
+                return;
+            }
+            try {
+                writer.commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        scheduler.shutdown();
+        searcherManager.close();
+        synchronized (publishLock) {
+            if (rebuilding) {
+                writer.rollback(); //반쯤 찬 인덱스를 디스크에 남기지 않는다. 다음 기동 때 마지막 commit 부터
+            } else {
+                writer.close(); //close 는 commit 을 포함한다.
+            }
+        }
+        directory.close();
+        if (temporary) {
+            FileSystemUtils.deleteRecursively(path);
+        }
+    }
+
+    /**
+     * 단어마다 (단어 일치 or 앞부분 일치 or 2-gram 중간 일치) 를 모두 만족
+     */
+    private Query allTokens(String field, List<String> tokens, boolean ngram) {
+        BooleanQuery.Builder all = new BooleanQuery.Builder();
+        for (String token : tokens) {
+            BooleanQuery.Builder tokenQuery = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(field, token)), 4f), Occur.SHOULD)
+                    .add(new BoostQuery(new PrefixQuery(new Term(field, token)), 2f), Occur.SHOULD);
+            if (ngram && token.length() >= 2) {
+                tokenQuery.add(bigramPhrase(token), Occur.SHOULD);
+            }
+            all.add(tokenQuery.build(), Occur.MUST);
+        }
+        return all.build();
+    }
+
+    private Query bigramPhrase(String token) {
+        PhraseQuery.Builder phrase = new PhraseQuery.Builder();
+        for (int i = 0; i + 2 <= token.length(); i++) {
+            phrase.add(new Term(NAME_NGRAM, token.substring(i, i + 2)), i);
+        }
+        return phrase.build();
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> tokens = new ArrayList<>();
+        if (!StringUtils.hasText(text)) {
+            return tokens;
+        }
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private static Document toLuceneDocument(SearchDocument source) {
+        Document document = new Document();
+        document.add(new StringField(KEY, source.key(), Field.Store.NO));
+        document.add(new StringField(TYPE, source.getType().name(), Field.Store.NO));
+        document.add(new StoredField(ID, source.getId()));
+        if (source.getName() != null) {
+            document.add(new TextField(NAME, source.getName(), Field.Store.NO));
+            document.add(new TextField(NAME_NGRAM, source.getName(), Field.Store.NO));
+        }
+        if (source.getAuthor() != null) {
+            document.add(new TextField(AUTHOR, source.getAuthor(), Field.Store.NO));
+        }
+        if (source.getIsbn() != null) {
+            document.add(new StringField(ISBN, normalizeIsbn(source.getIsbn()), Field.Store.NO));
+        }
+        return document;
+    }
+
+    private static String normalizeIsbn(String isbn) {
+        return isbn.replaceAll("[\\s-]", "").toUpperCase();
+    }
+
+    private static Analyzer bigramAnalyzer() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new NGramTokenizer(2, 2);
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+        };
+    }
+
+    private void refreshQuietly() {
+        synchronized (publishLock) {
+            if (rebuilding) {
+                return;
+            }
+            try {
+                searcherManager.maybeRefresh();
+            } catch (IOException | RuntimeException e) {
+                log.warn("검색 인덱스 refresh 실패", e);
+            }
+        }
+    }
+
+    private void commitQuietly() {
+        synchronized (publishLock) {
+            if (rebuilding) {
+                return;
+            }
+            try {
+                if (writer.hasUncommittedChanges()) {
+                    writer.commit();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("검색 인덱스 commit 실패", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package jpabook.jpashop.search;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Set;
+
+/**
+ * 회원, 상품 변경을 커밋 후 검색 인덱스에 반영한다. (SearchIndex)
+ * - Hibernate 이벤트 리스너(POST_INSERT, POST_UPDATE, POST_DELETE)로 등록한다. 엔티티는 이 패키지를 모른다.
+ * - 수정은 색인하는 필드(INDEXED_PROPERTIES)가 바뀐 경우만 반영한다. 재고, 가격만 바뀐 상품은 다시 색인하지 않는다.
+ * - 벌크 UPDATE, JDBC 로 이름을 바꾸면 이벤트가 없으므로 호출한 쪽에서 updateAfterCommit 을 호출해야 한다.
+ */
+@Component
+public class SearchIndexListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Set<String> INDEXED_PROPERTIES = Set.of("name", "author", "isbn");
+
+    private final SearchIndex searchIndex;
+    private final EntityManagerFactory emf;
+
+    public SearchIndexListener(SearchIndex searchIndex, EntityManagerFactory emf) {
+        this.searchIndex = searchIndex;
+        this.emf = emf;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry listenerRegistry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listenerRegistry.appendListeners(EventType.POST_INSERT, this);
+        listenerRegistry.appendListeners(EventType.POST_UPDATE, this);
+        listenerRegistry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        SearchDocument document = SearchDocument.of(event.getEntity());
+        if (document != null) {
+            searchIndex.updateAfterCommit(document);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        SearchDocument document = SearchDocument.of(event.getEntity());
+        if (document != null && indexedPropertyChanged(event)) {
+            searchIndex.updateAfterCommit(document);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        SearchDocument document = SearchDocument.of(event.getEntity());
+        if (document != null) {
+            searchIndex.updateAfterCommit(document.toDeleted());
+        }
+    }
+
+    /**
+     * 커밋 후 반영은 SearchIndex.updateAfterCommit 이 한다.
+     * Hibernate 5.4 에서는 deprecated 지만 abstract 라서 구현해야 한다.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * dirty 체크 없이 수정된 경우(dirtyProperties 가 null)는 바뀐 것으로 본다.
+     */
+    private static boolean indexedPropertyChanged(PostUpdateEvent event) {
+        int[] dirtyProperties = event.getDirtyProperties();
+        if (dirtyProperties == null) {
+            return true;
+        }
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        for (int index : dirtyProperties) {
+            if (INDEXED_PROPERTIES.contains(propertyNames[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
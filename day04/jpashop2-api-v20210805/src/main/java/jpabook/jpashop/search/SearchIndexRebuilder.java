@@ -0,0 +1,124 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Item;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * DB 에서 검색 인덱스를 다시 만든다.
+ * - 기동 시: 인덱스 디렉터리가 비어 있었거나(cold start) jpashop.search.rebuild-on-startup=true 면
+ * - 운영 중: POST /api/v1/search/rebuild
+ * - id 키셋으로 CHUNK_SIZE 건씩 읽고 chunk 마다 트랜잭션(영속성 컨텍스트)을 새로 연다. 2차 캐시는 채우지 않는다.
+ * - 다 채울 때까지 검색은 재생성 전 인덱스를 본다. (SearchIndex.beginRebuild ~ finishRebuild)
+ * - chunk 를 읽은 뒤 반영하기 전에 커밋된 변경은 SearchIndexListener 가 먼저 반영한다.
+ *   chunk 는 updateForRebuild 로 반영해서 그 키를 읽어둔 옛 값으로 덮어쓰지 않는다.
+ */
+@Slf4j
+@Component
+public class SearchIndexRebuilder {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final SearchIndex searchIndex;
+    private final EntityManager em;
+    private final TransactionTemplate readTx;
+    private final boolean rebuildOnStartup;
+
+    public SearchIndexRebuilder(SearchIndex searchIndex,
+                                EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${jpashop.search.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.searchIndex = searchIndex;
+        this.em = em;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup || searchIndex.isCreated()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return 색인한 회원 수, 상품 수
+     */
+    public synchronized RebuildResult rebuild() {
+        long start = System.nanoTime();
+        searchIndex.beginRebuild();
+        try {
+            int members = index(this::findMembersAfter);
+            int items = index(this::findItemsAfter);
+            searchIndex.finishRebuild();
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            log.info("검색 인덱스 재생성 members={}, items={}, elapsedMs={}", members, items, elapsedMs);
+            return new RebuildResult(members, items, elapsedMs);
+        } catch (RuntimeException e) {
+            log.error("검색 인덱스 재생성 실패. 다시 재생성할 때까지 검색은 재생성 전 인덱스를 봅니다.", e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return 색인한 건수
+     */
+    private int index(LongFunction<List<?>> findAfter) {
+        int count = 0;
+        long lastId = 0L;
+        List<SearchDocument> chunk;
+        do {
+            long after = lastId;
+            chunk = readTx.execute(status -> toDocuments(findAfter.apply(after)));
+            searchIndex.updateForRebuild(chunk);
+            count += chunk.size();
+            lastId = chunk.isEmpty() ? lastId : chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == CHUNK_SIZE);
+        return count;
+    }
+
+    private List<Member> findMembersAfter(long lastId) {
+        return em.createQuery("select m from Member m where m.id > :lastId order by m.id", Member.class)
+                .setParameter("lastId", lastId)
+                .setMaxResults(CHUNK_SIZE)
+                .getResultList();
+    }
+
+    private List<Item> findItemsAfter(long lastId) {
+        return em.createQuery("select i from Item i where i.id > :lastId order by i.id", Item.class)
+                .setParameter("lastId", lastId)
+                .setHint(QueryHints.CACHE_MODE, CacheMode.IGNORE)
+                .setMaxResults(CHUNK_SIZE)
+                .getResultList();
+    }
+
+    private List<SearchDocument> toDocuments(List<?> entities) {
+        return entities.stream()
+                .map(SearchDocument::of)
+                .collect(Collectors.toList());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RebuildResult {
+        private final int members;
+        private final int items;
+        private final long elapsedMs;
+    }
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Category 변경 리스너 (Hibernate POST_INSERT, POST_UPDATE, POST_DELETE)
+ * - 카테고리가 추가/수정/삭제되면 커밋 후에 트리 스냅샷을 다시 만든다.
+ */
+@Component
+public class CategoryChangeListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final CategoryTree categoryTree;
+    private final EntityManagerFactory emf;
+
+    public CategoryChangeListener(CategoryTree categoryTree, EntityManagerFactory emf) {
+        this.categoryTree = categoryTree;
+        this.emf = emf;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry listenerRegistry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listenerRegistry.appendListeners(EventType.POST_INSERT, this);
+        listenerRegistry.appendListeners(EventType.POST_UPDATE, this);
+        listenerRegistry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    /**
+     * 커밋 후 반영은 rebuildAfterCommit 이 한다.
+     * Hibernate 5.4 에서는 deprecated 지만 abstract 라서 구현해야 한다.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void onChange(Object entity) {
+        if (entity instanceof Category) {
+            categoryTree.rebuildAfterCommit();
+        }
+    }
+}
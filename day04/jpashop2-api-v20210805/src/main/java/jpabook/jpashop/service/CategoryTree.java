@@ -0,0 +1,72 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 카테고리 트리 스냅샷 보관
+ * - 애플리케이션 시작 시 한 번 만들고, 카테고리가 바뀐 트랜잭션이 커밋되면 다시 만든다.
+ * - 읽는 쪽은 락 없이 current() 로 최신 스냅샷을 얻는다.
+ * - 다시 만드는 쪽은 한 번에 하나만 실행한다. 커밋이 겹쳐도 먼저 읽은 스냅샷이 나중에 게시되지 않는다.
+ */
+@Slf4j
+@Component
+public class CategoryTree {
+
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate readTx;
+
+    private volatile CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.EMPTY;
+
+    public CategoryTree(CategoryRepository categoryRepository, PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        //afterCommit 안에서 호출되므로 항상 새 트랜잭션으로 읽는다.
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTx.setReadOnly(true);
+    }
+
+    public CategoryTreeSnapshot current() {
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        CategoryTreeSnapshot rebuilt = readTx.execute(status -> new CategoryTreeSnapshot(categoryRepository.findAll()));
+        snapshot = rebuilt;
+        log.debug("카테고리 트리 스냅샷 갱신 size={}", rebuilt.size());
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 한 번만 다시 만든다. (트랜잭션 밖이면 바로)
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return; //이미 등록됨
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuild();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CategoryTree.this);
+            }
+        });
+    }
+}
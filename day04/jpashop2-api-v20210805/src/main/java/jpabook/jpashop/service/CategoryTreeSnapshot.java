@@ -0,0 +1,119 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 트리 스냅샷 (불변)
+ * - 메뉴, 브레드크럼은 DB 를 조회하지 않고 이 스냅샷만 읽는다.
+ * - 트리가 바뀌면 새 스냅샷을 만들어 통째로 교체한다. (CategoryTree)
+ */
+public final class CategoryTreeSnapshot {
+
+    public static final CategoryTreeSnapshot EMPTY = new CategoryTreeSnapshot(Collections.emptyList());
+
+    private final Map<Long, Node> nodes;
+    private final List<Node> roots;
+
+    /**
+     * @param categories path, id 순으로 정렬된 전체 카테고리 (부모가 자식보다 먼저 온다)
+     */
+    CategoryTreeSnapshot(List<Category> categories) {
+        Map<Long, Long> parentIds = new HashMap<>();
+        Map<Long, List<Long>> childIds = new LinkedHashMap<>();
+        List<Long> rootIds = new ArrayList<>();
+        for (Category category : categories) {
+            Long parentId = parentId(category.getPath());
+            parentIds.put(category.getId(), parentId);
+            childIds.put(category.getId(), new ArrayList<>());
+            if (parentId == null) {
+                rootIds.add(category.getId());
+            } else {
+                childIds.computeIfAbsent(parentId, id -> new ArrayList<>()).add(category.getId());
+            }
+        }
+
+        Map<Long, Node> nodes = new LinkedHashMap<>();
+        for (Category category : categories) {
+            nodes.put(category.getId(), new Node(category.getId(), category.getName(),
+                    parentIds.get(category.getId()), category.getDepth(),
+                    Collections.unmodifiableList(childIds.get(category.getId()))));
+        }
+        this.nodes = Collections.unmodifiableMap(nodes);
+
+        List<Node> roots = new ArrayList<>(rootIds.size());
+        rootIds.forEach(id -> roots.add(nodes.get(id)));
+        this.roots = Collections.unmodifiableList(roots);
+    }
+
+    public Node get(Long categoryId) {
+        return nodes.get(categoryId);
+    }
+
+    public List<Node> roots() {
+        return roots;
+    }
+
+    public List<Node> children(Long categoryId) {
+        Node node = nodes.get(categoryId);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<Node> children = new ArrayList<>(node.getChildIds().size());
+        node.getChildIds().forEach(id -> children.add(nodes.get(id)));
+        return children;
+    }
+
+    /**
+     * 루트부터 자기 자신까지
+     */
+    public List<Node> breadcrumb(Long categoryId) {
+        List<Node> path = new ArrayList<>();
+        for (Node node = nodes.get(categoryId); node != null; node = nodes.get(node.getParentId())) {
+            path.add(node);
+            if (node.getParentId() == null) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    private static Long parentId(String path) {
+        int end = path.length() - 1;
+        if (end <= 0) {
+            return null; //루트 "/"
+        }
+        int start = path.lastIndexOf('/', end - 1) + 1;
+        return Long.valueOf(path.substring(start, end));
+    }
+
+    @Getter
+    public static final class Node {
+
+        private final Long id;
+        private final String name;
+        private final Long parentId;
+        private final int depth;
+        private final List<Long> childIds;
+
+        private Node(Long id, String name, Long parentId, int depth, List<Long> childIds) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.depth = depth;
+            this.childIds = childIds;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Item;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 엔티티 변경 시 애그리거트 버전을 올린다. (ChangeVersionTracker)
+ * - Hibernate 이벤트 리스너로 등록하므로 엔티티에는 @EntityListeners 가 없다.
+ * - OrderItem, Delivery 변경은 Order 변경으로 본다.
+ * - 벌크 UPDATE, JDBC 로 직접 바꾸는 경우는 호출한 쪽에서 bumpAfterCommit 을 호출해야 한다.
+ */
+@Component
+public class ChangeVersionListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final ChangeVersionTracker changeVersionTracker;
+    private final EntityManagerFactory emf;
+
+    public ChangeVersionListener(ChangeVersionTracker changeVersionTracker, EntityManagerFactory emf) {
+        this.changeVersionTracker = changeVersionTracker;
+        this.emf = emf;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry listenerRegistry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listenerRegistry.appendListeners(EventType.POST_INSERT, this);
+        listenerRegistry.appendListeners(EventType.POST_UPDATE, this);
+        listenerRegistry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    /**
+     * 커밋 후 반영은 bumpAfterCommit 이 한다.
+     * Hibernate 5.4 에서는 deprecated 지만 abstract 라서 구현해야 한다.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void onChange(Object entity) {
+        Class<?> aggregate = aggregateOf(entity);
+        if (aggregate != null) {
+            changeVersionTracker.bumpAfterCommit(aggregate);
+        }
+    }
+
+    private Class<?> aggregateOf(Object entity) {
+        if (entity instanceof Order || entity instanceof OrderItem || entity instanceof Delivery) {
+            return Order.class;
+        }
+        if (entity instanceof Member) {
+            return Member.class;
+        }
+        if (entity instanceof Item) {
+            return Item.class;
+        }
+        return null;
+    }
+}
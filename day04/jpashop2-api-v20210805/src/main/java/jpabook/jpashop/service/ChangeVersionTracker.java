@@ -0,0 +1,67 @@
+package jpabook.jpashop.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 애그리거트(Order, Member, Item) 종류별 변경 버전
+ * - 변경한 트랜잭션이 커밋된 뒤에 버전을 올린다.
+ *   (커밋 전에 올리면 이전 데이터가 새 버전 ETag 로 캐시될 수 있다)
+ * - 버전은 애플리케이션 인스턴스 메모리에만 있으므로 ETag 에는 기동 시각(bootEpoch)을 같이 넣는다.
+ */
+@Component
+public class ChangeVersionTracker {
+
+    private final long bootEpoch = System.currentTimeMillis();
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long bootEpoch() {
+        return bootEpoch;
+    }
+
+    public long version(Class<?> aggregate) {
+        return counter(aggregate).get();
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 버전을 올린다. (트랜잭션 밖이면 바로)
+     * - 한 트랜잭션에서 여러 번 호출해도 커밋 후 한 번만 올린다.
+     */
+    @SuppressWarnings("unchecked")
+    public void bumpAfterCommit(Class<?> aggregate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter(aggregate).incrementAndGet();
+            return;
+        }
+
+        Set<Class<?>> changed = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<Class<?>> pending = new LinkedHashSet<>();
+            changed = pending;
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.forEach(type -> counter(type).incrementAndGet());
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeVersionTracker.this);
+                }
+            });
+        }
+        changed.add(aggregate);
+    }
+
+    private AtomicLong counter(Class<?> aggregate) {
+        return versions.computeIfAbsent(aggregate, type -> new AtomicLong());
+    }
+}
@@ -14,6 +14,7 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final StockReservationService stockReservationService;
 
     @Transactional
     public void saveItem(Item item) {
@@ -22,6 +23,9 @@ public class ItemService {
 
     @Transactional
     public void updateItem(Long itemId, String name, int price, int stockQuantity) {
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.resetAfterCommit(itemId); //재고를 직접 덮어쓰므로 메모리 카운터를 다시 읽게 한다.
+        }
         Item item = itemRepository.findOne(itemId);
         item.setName(name);
         item.setPrice(price);
@@ -0,0 +1,259 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberRepositoryOld;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 회원 대량 등록 (CSV / NDJSON 스트리밍)
+ * - 요청 본문을 한 줄씩 읽는다. 전체를 메모리에 올리지 않고 chunk-size 건씩 처리한다.
+ * - chunk 마다 트랜잭션 하나
+ *   1. 블룸 필터(MemberNameFilter)가 있을 수도 있다고 한 이름만 IN 쿼리 한 번으로 중복 확인
+ *   2. persist -> flush(JDBC 배치 INSERT) -> clear
+ * - 앞 chunk 는 커밋된 상태로 남는다. 형식이 잘못된 행을 만나거나 동시 가입과 두 번 연속 충돌하면 거기서 멈추고,
+ *   그때까지의 결과와 멈춘 이유(ImportResult.error)를 돌려준다.
+ * - 검색 인덱스, ETag 버전은 엔티티 리스너가 커밋 후에 반영한다.
+ *
+ * CSV: 첫 줄은 헤더 (name,city,street,zipcode 순서는 자유, 모르는 컬럼은 무시)
+ * NDJSON: 한 줄에 {"name":"...","city":"...","street":"...","zipcode":"..."} 하나
+ */
+@Slf4j
+@Service
+public class MemberImportService {
+
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_REJECTIONS = 100;
+
+    private static final ObjectReader CSV_READER = new CsvMapper()
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+            .readerFor(Row.class)
+            .with(CsvSchema.emptySchema().withHeader())
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private static final ObjectReader NDJSON_READER = new ObjectMapper()
+            .readerFor(Row.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    public enum Format {CSV, NDJSON}
+
+    public enum Reason {INVALID, DUPLICATE}
+
+    private final MemberRepositoryOld memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+
+    public MemberImportService(MemberRepositoryOld memberRepository,
+                               MemberNameFilter memberNameFilter,
+                               EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${jpashop.member.import.chunk-size:1000}") int chunkSize) {
+        this.memberRepository = memberRepository;
+        this.memberNameFilter = memberNameFilter;
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResult importMembers(InputStream in, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+        ObjectReader reader = format == Format.CSV ? CSV_READER : NDJSON_READER;
+
+        try (MappingIterator<Row> rows = reader.readValues(in)) {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            Row row;
+            while ((row = nextRow(rows, result)) != null) {
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, result);
+                    chunk.clear();
+                    if (result.error != null) {
+                        break;
+                    }
+                }
+            }
+            importChunk(chunk, result); //형식 오류 앞까지 읽은 행
+        } catch (JsonProcessingException e) {
+            result.stop("형식이 잘못된 요청입니다. (" + e.getOriginalMessage() + ")");
+        }
+
+        result.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("회원 대량 등록 total={}, imported={}, duplicated={}, invalid={}, elapsedMs={}, error={}",
+                result.total, result.imported, result.duplicated, result.invalid, result.elapsedMs, result.error);
+        return result;
+    }
+
+    /**
+     * @return 다음 행, 끝이거나 형식이 잘못된 행이면 null
+     */
+    private Row nextRow(MappingIterator<Row> rows, ImportResult result) throws IOException {
+        try {
+            if (!rows.hasNextValue()) {
+                return null;
+            }
+            Row row = rows.nextValue();
+            row.setRowNumber(++result.total);
+            return row;
+        } catch (JsonProcessingException e) {
+            result.stop("형식이 잘못된 행입니다. row=" + (result.total + 1) + " (" + e.getOriginalMessage() + ")");
+            return null;
+        }
+    }
+
+    private void importChunk(List<Row> chunk, ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Row> valid = validate(chunk, result);
+        List<String> names;
+        try {
+            names = tx.execute(status -> insert(valid, result));
+        } catch (DataIntegrityViolationException e) {
+            //중복 확인 후 같은 이름이 먼저 가입됨 (동시 가입) -> 롤백됐으므로 다시 확인하고 한 번 더
+            log.debug("회원 대량 등록 중 동시 가입 감지, chunk 를 다시 처리합니다. size={}", valid.size());
+            try {
+                names = tx.execute(status -> insert(valid, result));
+            } catch (DataIntegrityViolationException again) {
+                result.stop("동시 가입과 계속 충돌해서 중단했습니다. row=" + chunk.get(0).getRowNumber() + " 부터 다시 등록해주세요.");
+                return;
+            }
+        }
+        memberNameFilter.putAll(names);
+        log.debug("회원 대량 등록 진행 total={}, imported={}", result.total, result.imported);
+    }
+
+    /**
+     * 빈 이름, 너무 긴 이름, 같은 파일 안에서 앞 행과 같은 이름을 걸러낸다.
+     */
+    private List<Row> validate(List<Row> chunk, ImportResult result) {
+        List<Row> valid = new ArrayList<>(chunk.size());
+        Set<String> names = new HashSet<>();
+        for (Row row : chunk) {
+            String name = row.getName() == null ? null : row.getName().trim();
+            if (name == null || name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+                result.reject(row, Reason.INVALID);
+            } else if (!names.add(name)) {
+                result.reject(row, Reason.DUPLICATE);
+            } else {
+                row.setName(name);
+                valid.add(row);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @return 새로 등록한 이름
+     */
+    private List<String> insert(List<Row> rows, ImportResult result) {
+        List<String> candidates = rows.stream()
+                .map(Row::getName)
+                .filter(memberNameFilter::mightContain)
+                .collect(Collectors.toList());
+        Set<String> existing = new HashSet<>();
+        if (!candidates.isEmpty()) {
+            existing.addAll(memberRepository.findExistingNames(candidates)); //chunk 당 IN 쿼리 한 번
+        }
+
+        List<String> inserted = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (existing.contains(row.getName())) {
+                continue;
+            }
+            Member member = new Member();
+            member.setName(row.getName());
+            member.setAddress(new Address(row.getCity(), row.getStreet(), row.getZipcode()));
+            memberRepository.save(member);
+            inserted.add(row.getName());
+        }
+        memberRepository.flush(); //hibernate.jdbc.batch_size 단위 JDBC 배치 INSERT, 제약조건 위반은 DataIntegrityViolationException
+        em.clear();
+
+        //커밋 직전까지 예외가 없을 때만 집계한다. (롤백 후 다시 처리해도 두 번 세지 않는다)
+        rows.stream()
+                .filter(row -> existing.contains(row.getName()))
+                .forEach(row -> result.reject(row, Reason.DUPLICATE));
+        result.imported += inserted.size();
+        return inserted;
+    }
+
+    @Data
+    public static class Row {
+        private String name;
+        private String city;
+        private String street;
+        private String zipcode;
+        @JsonIgnore
+        private long rowNumber;
+    }
+
+    /**
+     * 등록 결과 요약
+     * - rejections 는 앞에서부터 MAX_REJECTIONS 건만 남긴다.
+     * - error: 중간에 멈췄으면 그 이유, 끝까지 처리했으면 null
+     */
+    @Getter
+    public static class ImportResult {
+        private long total;
+        private long imported;
+        private long duplicated;
+        private long invalid;
+        private long elapsedMs;
+        private String error;
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        private void stop(String reason) {
+            if (error == null) {
+                error = reason;
+            }
+        }
+
+        private void reject(Row row, Reason reason) {
+            if (reason == Reason.DUPLICATE) {
+                duplicated++;
+            } else {
+                invalid++;
+            }
+            if (rejections.size() < MAX_REJECTIONS) {
+                rejections.add(new Rejection(row.getRowNumber(), row.getName(), reason));
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Rejection {
+        private final long row;
+        private final String name;
+        private final Reason reason;
+    }
+}
@@ -0,0 +1,182 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 가입된 회원 이름 블룸 필터
+ * - mightContain() 이 false 면 그 이름은 DB 에 없다. (true 는 있을 수도 있다 -> DB 로 확인)
+ * - 애플리케이션 시작 시 DB 의 이름을 id 키셋으로 읽어서 채운다. 다 채우기 전에는 항상 true (DB 로 확인)
+ * - 비트는 켜기만 한다. 이름이 바뀌거나 회원이 삭제돼도 끄지 않으므로 오탐만 늘고 누락은 없다.
+ * - 최종 판단은 member.name 유니크 제약조건이다. 필터는 대부분의 새 이름이 조회 없이 지나가게 할 뿐이다.
+ *
+ * 메트릭
+ * - jpashop.member.name.check{result=filtered} : 필터만으로 통과한 이름 (DB 조회 없음)
+ * - jpashop.member.name.check{result=queried}  : DB 로 확인한 이름
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final EntityManager em;
+    private final TransactionTemplate readTx;
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private volatile boolean ready;
+
+    private final Counter filteredCounter;
+    private final Counter queriedCounter;
+
+    public MemberNameFilter(EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${jpashop.member.name-filter.expected-names:1000000}") int expectedNames,
+                            @Value("${jpashop.member.name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.em = em;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+
+        //m = -n ln(p) / (ln 2)^2, k = m / n * ln 2
+        long optimalBits = (long) Math.ceil(-expectedNames * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact((Math.max(optimalBits, Long.SIZE) + Long.SIZE - 1) / Long.SIZE));
+        this.bitSize = (long) bits.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedNames * Math.log(2)));
+
+        this.filteredCounter = checkCounter(meterRegistry, "filtered");
+        this.queriedCounter = checkCounter(meterRegistry, "queried");
+    }
+
+    /**
+     * 시작 시 DB 에 있는 이름을 모두 넣는다.
+     * 채우는 동안 들어온 put() 도 같은 비트 배열에 들어가므로 빠지는 이름이 없다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.nanoTime();
+        int count = 0;
+        long lastId = 0L;
+        List<Object[]> chunk;
+        do {
+            long after = lastId;
+            chunk = readTx.execute(status -> findNamesAfter(after));
+            for (Object[] row : chunk) {
+                put((String) row[1]);
+            }
+            count += chunk.size();
+            lastId = chunk.isEmpty() ? lastId : (Long) chunk.get(chunk.size() - 1)[0];
+        } while (chunk.size() == CHUNK_SIZE);
+
+        ready = true;
+        log.info("회원 이름 필터 준비 names={}, bits={}, hashes={}, elapsedMs={}",
+                count, bitSize, hashCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return false 면 DB 에 없는 이름 (조회 생략 가능)
+     */
+    public boolean mightContain(String name) {
+        if (!ready || name == null) {
+            queriedCounter.increment();
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = bitIndex(h1, h2, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                filteredCounter.increment();
+                return false;
+            }
+        }
+        queriedCounter.increment();
+        return true;
+    }
+
+    /**
+     * 가입 또는 이름 변경 시 새 이름을 넣는다.
+     * 롤백돼도 빼지 않는다. (오탐 하나가 늘 뿐이다)
+     */
+    public void put(String name) {
+        if (name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = bitIndex(h1, h2, i);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public void putAll(Iterable<String> names) {
+        names.forEach(this::put);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private List<Object[]> findNamesAfter(long lastId) {
+        return em.createQuery("select m.id, m.name from Member m where m.id > :lastId order by m.id", Object[].class)
+                .setParameter("lastId", lastId)
+                .setMaxResults(CHUNK_SIZE)
+                .getResultList();
+    }
+
+    /**
+     * 해시 두 개(h1 + i * h2)로 k 개의 비트 위치를 만든다. (Kirsch-Mitzenmacher)
+     */
+    private long bitIndex(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % bitSize;
+    }
+
+    /**
+     * 64비트 FNV-1a + 비트 섞기
+     */
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static Counter checkCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("jpashop.member.name.check")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -2,11 +2,16 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepositoryOld;
+import jpabook.jpashop.search.SearchDocument;
+import jpabook.jpashop.search.SearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional(readOnly = true)
@@ -14,21 +19,35 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepositoryOld memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final ChangeVersionTracker changeVersionTracker;
+    private final SearchIndex searchIndex;
 
     /**
      * 회원 가입
+     * - 동시에 같은 이름으로 가입하면 검증은 둘 다 통과할 수 있다. 유니크 제약조건(uk_member_name)이 최종 판단이므로
+     *   바로 flush 해서 위반을 여기서 같은 예외로 바꾼다.
      */
     @Transactional
     public Long join(Member member) {
 
         validateDuplicateMember(member); //중복 회원 검증
-        memberRepository.save(member);
+        try {
+            memberRepository.save(member);
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        memberNameFilter.put(member.getName());
         return member.getId();
     }
 
+    /**
+     * 블룸 필터에 없는 이름은 조회하지 않는다. 있을 수도 있는 이름만 엔티티 없이 존재 여부를 확인한다.
+     */
     private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if (!findMembers.isEmpty()) {
+        String name = member.getName();
+        if (memberNameFilter.mightContain(name) && memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
@@ -44,11 +63,54 @@ public class MemberService {
 
     /**
      * 회원 수정
+     * - 엔티티(Address, orders 프록시 포함)를 읽어서 변경 감지에 맡기지 않고 update member set name = ? 한 번으로 바꾼다.
      */
     @Transactional
     public void update(Long id, String name) {
-        Member member = memberRepository.findOne(id);
-        member.setName(name);
+        int updated;
+        try {
+            updated = memberRepository.updateName(id, name);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        if (updated == 0) {
+            throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + id);
+        }
+        nameChanged(Collections.singletonMap(id, name));
+    }
+
+    /**
+     * 회원 이름 일괄 수정 (JDBC 배치 UPDATE)
+     *
+     * @param names 회원 id -> 새 이름
+     * @return 바뀐 회원 수 (없는 id 는 건너뛴다)
+     */
+    @Transactional
+    public int updateNames(Map<Long, String> names) {
+        if (names.isEmpty()) {
+            return 0;
+        }
+        Map<Long, String> updated;
+        try {
+            updated = memberRepository.updateNames(names);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        if (!updated.isEmpty()) {
+            nameChanged(updated); //실제로 바뀐 행만
+        }
+        return updated.size();
+    }
+
+    /**
+     * 벌크 UPDATE 는 엔티티 리스너를 거치지 않으므로 ETag 버전, 검색 인덱스, 이름 필터를 직접 반영한다.
+     */
+    private void nameChanged(Map<Long, String> names) {
+        changeVersionTracker.bumpAfterCommit(Member.class);
+        names.forEach((id, name) -> {
+            searchIndex.updateAfterCommit(SearchDocument.member(id, name));
+            memberNameFilter.put(name);
+        });
     }
 
 }
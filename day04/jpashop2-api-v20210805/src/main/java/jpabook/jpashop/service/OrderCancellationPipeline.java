@@ -0,0 +1,287 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.ServerBusyException;
+import jpabook.jpashop.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 취소 파이프라인 (비동기)
+ * - 취소 요청은 큐에 넣고 바로 반환한다.
+ *   큐 자리(capacity)는 요청 묶음 단위로 한 번에 확보한다. 모자라면 하나도 넣지 않고 ServerBusyException(503)
+ * - 워커 스레드 하나가 큐에서 batch-size 개씩 꺼내서 트랜잭션 하나로 처리한다.
+ *   1. 주문 + 배송 IN 조회 -> 배송완료(COMP) 주문은 거절
+ *   2. update Order o set o.status = CANCEL where o.id in (...) 벌크 연산
+ *   3. 상품별 취소 수량을 group by 로 합쳐서 상품마다 UPDATE 한 번 (JDBC 배치)
+ *      재고 선점을 쓰면 메모리 카운터로 반환한다.
+ * - 같은 상품이 수천 번 취소되어도 배치마다 UPDATE 는 상품당 한 번이다.
+ *
+ * 메트릭
+ * - jpashop.order.cancel.queue : 대기 중인 취소 요청 수
+ * - jpashop.order.cancel.latency{result=canceled|rejected|failed} : 요청부터 처리 완료까지 걸린 시간
+ */
+@Slf4j
+@Service
+public class OrderCancellationPipeline {
+
+    private static final String RESTORE_STOCK_SQL =
+            "update item set stock_quantity = stock_quantity + ? where item_id = ?";
+
+    private final OrderRepository orderRepository;
+    private final StockReservationService stockReservationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory emf;
+    private final ChangeVersionTracker changeVersionTracker;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    private final BlockingQueue<CancelRequest> queue;
+    /**
+     * 큐의 남은 자리. 워커가 큐에서 꺼낼 때 반환하므로 queue.size() 는 항상 확보한 자리 수 이하다.
+     */
+    private final Semaphore capacity;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final Timer canceledTimer;
+    private final Timer rejectedTimer;
+    private final Timer failedTimer;
+
+    public OrderCancellationPipeline(OrderRepository orderRepository,
+                                     StockReservationService stockReservationService,
+                                     JdbcTemplate jdbcTemplate,
+                                     EntityManagerFactory emf,
+                                     ChangeVersionTracker changeVersionTracker,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${jpashop.order.cancel.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${jpashop.order.cancel.batch-size:500}") int batchSize) {
+        this.orderRepository = orderRepository;
+        this.stockReservationService = stockReservationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.emf = emf;
+        this.changeVersionTracker = changeVersionTracker;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.capacity = new Semaphore(queueCapacity);
+
+        Gauge.builder("jpashop.order.cancel.queue", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        this.canceledTimer = latencyTimer(meterRegistry, "canceled");
+        this.rejectedTimer = latencyTimer(meterRegistry, "rejected");
+        this.failedTimer = latencyTimer(meterRegistry, "failed");
+
+        this.worker = new Thread(this::run, "order-cancel-pipeline");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 취소 요청
+     * - 큐가 가득 차면 ServerBusyException
+     * - 반환한 future 는 취소가 커밋되면 완료된다. (배송완료 주문이면 IllegalStateException 으로 실패)
+     */
+    public CompletableFuture<Void> submit(Long orderId) {
+        return submitAll(List.of(orderId)).get(0);
+    }
+
+    /**
+     * 여러 건을 한 번에 요청한다. 전부 넣거나 하나도 넣지 않는다.
+     * - 큐에 orderIds 만큼 자리가 없으면 ServerBusyException
+     */
+    public List<CompletableFuture<Void>> submitAll(List<Long> orderIds) {
+        if (!running) {
+            throw new ServerBusyException("주문 취소 파이프라인이 종료되었습니다.");
+        }
+        if (!capacity.tryAcquire(orderIds.size())) {
+            throw new ServerBusyException("주문 취소 요청이 너무 많습니다. 잠시 후 다시 시도해주세요.");
+        }
+        List<CompletableFuture<Void>> results = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            CancelRequest request = new CancelRequest(orderId);
+            queue.add(request); //자리를 확보했으므로 실패하지 않는다.
+            results.add(request.result);
+        }
+        return results;
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<CancelRequest> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CancelRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                capacity.release(batch.size());
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("주문 취소 처리 중 오류", e);
+                batch.forEach(request -> request.fail(e, failedTimer));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<CancelRequest> batch) {
+        Set<Long> orderIds = batch.stream()
+                .map(request -> request.orderId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Long, RuntimeException> rejected;
+        try {
+            rejected = tx.execute(status -> cancel(orderIds));
+        } catch (ConcurrentCancelException e) {
+            //조회 후 다른 경로(OrderService.cancelOrder)에서 먼저 취소된 주문이 있으면 롤백하고 한 번 더 처리한다.
+            //다시 조회하면 이미 취소된 주문은 대상에서 빠진다.
+            log.debug("동시 취소 감지, 배치를 다시 처리합니다. size={}", orderIds.size());
+            rejected = tx.execute(status -> cancel(orderIds));
+        }
+
+        for (CancelRequest request : batch) {
+            RuntimeException reason = rejected.get(request.orderId);
+            if (reason == null) {
+                request.complete(canceledTimer);
+            } else {
+                request.fail(reason, rejectedTimer);
+            }
+        }
+    }
+
+    /**
+     * @return 취소할 수 없는 주문 id -> 사유
+     */
+    private Map<Long, RuntimeException> cancel(Set<Long> orderIds) {
+        Map<Long, Order> orders = orderRepository.findAllWithDelivery(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        Map<Long, RuntimeException> rejected = new HashMap<>();
+        List<Long> targets = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            Order order = orders.get(orderId);
+            if (order == null) {
+                rejected.put(orderId, new IllegalArgumentException("존재하지 않는 주문입니다. orderId=" + orderId));
+            } else if (order.getDelivery().getStatus() == DeliveryStatus.COMP) {
+                rejected.put(orderId, new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다."));
+            } else if (order.getStatus() == OrderStatus.ORDER) {
+                targets.add(orderId);
+            }
+            //이미 취소된 주문은 그대로 성공 처리
+        }
+        if (targets.isEmpty()) {
+            return rejected;
+        }
+
+        //재고 수량은 상태를 바꾸기 전에 합산한다.
+        Map<Long, Integer> counts = orderRepository.sumOrderItemCountByItem(targets);
+        if (orderRepository.bulkCancel(targets) != targets.size()) {
+            throw new ConcurrentCancelException(); //재고를 두 번 복구하지 않도록 롤백
+        }
+        changeVersionTracker.bumpAfterCommit(Order.class); //벌크 UPDATE 는 엔티티 리스너를 거치지 않는다.
+        restoreStock(counts);
+        return rejected;
+    }
+
+    private void restoreStock(Map<Long, Integer> counts) {
+        if (stockReservationService.isEnabled()) {
+            counts.forEach(stockReservationService::release); //커밋 후 메모리 카운터로 반환
+            return;
+        }
+
+        List<Object[]> args = counts.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(RESTORE_STOCK_SQL, args);
+        changeVersionTracker.bumpAfterCommit(Item.class);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counts.keySet().forEach(itemId -> emf.getCache().evict(Item.class, itemId)); //2차 캐시의 재고 값도 버린다.
+            }
+        });
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("jpashop.order.cancel.latency")
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 남은 요청까지 처리하고 종료
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private static final class ConcurrentCancelException extends RuntimeException {
+        private ConcurrentCancelException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class CancelRequest {
+
+        private final Long orderId;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private CancelRequest(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        private void complete(Timer timer) {
+            timer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            result.complete(null);
+        }
+
+        private void fail(Throwable reason, Timer timer) {
+            timer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            result.completeExceptionally(reason);
+        }
+    }
+}
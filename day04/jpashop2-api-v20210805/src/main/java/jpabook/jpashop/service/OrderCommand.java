@@ -0,0 +1,32 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 대량 주문 요청 한 건 (회원 1명, 주문상품 여러 개)
+ */
+@Getter
+public class OrderCommand {
+
+    private final Long memberId;
+    private final List<OrderLine> orderLines;
+
+    public OrderCommand(Long memberId, List<OrderLine> orderLines) {
+        this.memberId = memberId;
+        this.orderLines = orderLines;
+    }
+
+    @Getter
+    public static class OrderLine {
+
+        private final Long itemId;
+        private final int count; //주문 수량
+
+        public OrderLine(Long itemId, int count) {
+            this.itemId = itemId;
+            this.count = count;
+        }
+    }
+}
@@ -6,20 +6,32 @@ import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepositoryOld;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.search.OrderSearchPage;
+import jpabook.jpashop.repository.order.search.OrderSearchRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final int MAX_BULK_ORDERS = 1000;
+
     private final OrderRepository orderRepository;
+    private final OrderSearchRepository orderSearchRepository;
     private final MemberRepositoryOld memberRepository;
     private final ItemRepository itemRepository;
+    private final StockReservationService stockReservationService;
 
     /**
      * 주문
@@ -37,7 +49,13 @@ public class OrderService {
         delivery.setStatus(DeliveryStatus.READY);
 
         //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem;
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.reserve(itemId, count); //재고 선점, 부족하면 NotEnoughStockException
+            orderItem = OrderItem.createOrderItemWithReservedStock(item, item.getPrice(), count);
+        } else {
+            orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        }
 
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
@@ -48,6 +66,69 @@ public class OrderService {
         return order.getId();
     }
 
+    /**
+     * 대량 주문
+     * - 회원, 상품은 IN 쿼리 한 번씩으로 조회
+     * - 주문/주문상품/배송은 시퀀스(pooled) 식별자라 persist 시점에 INSERT 하지 않고,
+     *   flush 시점에 hibernate.jdbc.batch_size 단위의 JDBC 배치로 INSERT 한다.
+     */
+    @Transactional
+    public List<Long> orderBulk(List<OrderCommand> commands) {
+        if (commands.size() > MAX_BULK_ORDERS) {
+            throw new IllegalArgumentException("한 번에 주문할 수 있는 최대 건수는 " + MAX_BULK_ORDERS + "건 입니다.");
+        }
+
+        //엔티티 조회
+        Set<Long> memberIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        for (OrderCommand command : commands) {
+            memberIds.add(command.getMemberId());
+            command.getOrderLines().forEach(line -> itemIds.add(line.getItemId()));
+        }
+        Map<Long, Member> members = memberRepository.findAllById(memberIds).stream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()));
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<Order> orders = new ArrayList<>(commands.size());
+        for (OrderCommand command : commands) {
+            Member member = members.get(command.getMemberId());
+            if (member == null) {
+                throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + command.getMemberId());
+            }
+
+            //배송정보 생성
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
+
+            //주문상품 생성
+            OrderItem[] orderItems = new OrderItem[command.getOrderLines().size()];
+            for (int i = 0; i < orderItems.length; i++) {
+                OrderCommand.OrderLine line = command.getOrderLines().get(i);
+                Item item = items.get(line.getItemId());
+                if (item == null) {
+                    throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + line.getItemId());
+                }
+                if (stockReservationService.isEnabled()) {
+                    stockReservationService.reserve(item.getId(), line.getCount());
+                    orderItems[i] = OrderItem.createOrderItemWithReservedStock(item, item.getPrice(), line.getCount());
+                } else {
+                    orderItems[i] = OrderItem.createOrderItem(item, item.getPrice(), line.getCount());
+                }
+            }
+
+            //주문 생성, 저장
+            Order order = Order.createOrder(member, delivery, orderItems);
+            orderRepository.save(order);
+            orders.add(order);
+        }
+
+        return orders.stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 주문 취소
      */
@@ -56,11 +137,18 @@ public class OrderService {
         //주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
         //주문 취소
-        order.cancel();
+        if (stockReservationService.isEnabled()) {
+            order.markCanceled();
+            for (OrderItem orderItem : order.getOrderItems()) {
+                stockReservationService.release(orderItem.getItem().getId(), orderItem.getCount());
+            }
+        } else {
+            order.cancel();
+        }
     }
 
-    //검색
-    public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+    //검색 (order_id 키셋 페이지)
+    public OrderSearchPage findOrders(OrderSearch orderSearch, Long lastOrderId, int limit) {
+        return orderSearchRepository.search(orderSearch, lastOrderId, limit);
     }
 }
@@ -0,0 +1,65 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.search.SearchDocument.Type;
+import jpabook.jpashop.search.SearchIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 전문 검색
+ * - 검색 인덱스에서 id 를 점수 순으로 받고, 엔티티는 id IN 쿼리 한 번으로 읽어서 그 순서대로 돌려준다.
+ * - 인덱스에는 있지만 DB 에서 지워진 id 는 빠진다.
+ * - limit 은 1 ~ MAX_LIMIT 으로 맞춘다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class SearchService {
+
+    public static final int MAX_LIMIT = 100;
+
+    private final SearchIndex searchIndex;
+    private final MemberRepository memberRepository;
+    private final ItemRepository itemRepository;
+
+    public List<Member> searchMembers(String text, int limit) {
+        List<Long> ids = searchIndex.search(Type.MEMBER, text, clamp(limit));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return inOrder(ids, memberRepository.findAllById(ids), Member::getId);
+    }
+
+    public List<Item> searchItems(String text, int limit) {
+        List<Long> ids = searchIndex.search(Type.ITEM, text, clamp(limit));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return inOrder(ids, itemRepository.findAllById(ids), Item::getId);
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    private static <T> List<T> inOrder(List<Long> ids, List<T> entities, Function<T, Long> idOf) {
+        Map<Long, T> byId = entities.stream()
+                .collect(Collectors.toMap(idOf, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
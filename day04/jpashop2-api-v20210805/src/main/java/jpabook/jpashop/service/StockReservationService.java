@@ -0,0 +1,341 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 재고 선점(reservation)
+ * - 상품마다 메모리에 재고 카운터를 두고, 주문은 DB 락 없이 카운터에서 바로 차감한다.
+ * - 카운터는 여러 stripe 으로 나눠서 인기 상품에 주문이 몰려도 CAS 경합이 한 곳에 몰리지 않게 한다.
+ * - 차감량은 모아두었다가 주기적으로
+ *   update item set stock_quantity = stock_quantity - ? where item_id = ? and stock_quantity >= ?
+ *   조건부 UPDATE 를 JDBC 배치로 한 번에 반영한다.
+ * - 조건이 맞지 않으면(다른 경로에서 DB 재고가 줄어든 경우) 이미 커밋된 주문의 차감량이므로 버리지 않고
+ *   조건 없이 반영한 다음 카운터를 DB 값으로 다시 맞춘다. DB 재고가 음수가 되면 초과 판매이므로 error 로그를 남긴다.
+ * - 주문 트랜잭션이 롤백되면 선점한 재고는 자동으로 반환된다.
+ *
+ * jpashop.stock.reservation.enabled=true 일 때만 주문/취소에서 사용한다.
+ * 카운터는 애플리케이션 인스턴스 하나를 기준으로 한다.
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private static final String WRITE_BACK_SQL =
+            "update item set stock_quantity = stock_quantity - ? where item_id = ? and stock_quantity >= ?";
+    private static final String FORCE_WRITE_BACK_SQL =
+            "update item set stock_quantity = stock_quantity - ? where item_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeBackTx;
+    private final EntityManagerFactory emf;
+    private final ChangeVersionTracker changeVersionTracker;
+    private final boolean enabled;
+    private final int stripeCount;
+
+    private final Map<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   EntityManagerFactory emf,
+                                   ChangeVersionTracker changeVersionTracker,
+                                   @Value("${jpashop.stock.reservation.enabled:false}") boolean enabled,
+                                   @Value("${jpashop.stock.reservation.flush-interval-ms:100}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emf = emf;
+        this.changeVersionTracker = changeVersionTracker;
+        this.enabled = enabled;
+        this.stripeCount = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+
+        //주문 트랜잭션과 상관없이 항상 독립적으로 커밋
+        this.writeBackTx = new TransactionTemplate(transactionManager);
+        this.writeBackTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        if (enabled) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "stock-write-back");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 재고 선점
+     * - 재고가 부족하면 NotEnoughStockException
+     * - 현재 트랜잭션이 롤백되면 선점한 재고를 반환한다.
+     */
+    public void reserve(Long itemId, int quantity) {
+        stockOf(itemId).reserve(quantity);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        stockOf(itemId).release(quantity);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 재고 반환(주문 취소)
+     * - 트랜잭션 안이면 커밋된 뒤에 반환한다.
+     */
+    public void release(Long itemId, int quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stockOf(itemId).release(quantity);
+                }
+            });
+        } else {
+            stockOf(itemId).release(quantity);
+        }
+    }
+
+    /**
+     * 재고를 직접 수정하는 경우(상품 수정 화면)
+     * - 아직 반영되지 않은 차감량을 먼저 DB 에 반영하고, 커밋 후에는 카운터를 버려서 DB 값을 다시 읽게 한다.
+     */
+    public void resetAfterCommit(Long itemId) {
+        flush();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stocks.remove(itemId);
+                }
+            });
+        } else {
+            stocks.remove(itemId);
+        }
+    }
+
+    /**
+     * 모아둔 차감량을 DB 에 반영 (조건부 UPDATE 배치)
+     */
+    public synchronized void flush() {
+        List<Long> itemIds = new ArrayList<>();
+        List<Object[]> args = new ArrayList<>();
+        stocks.forEach((itemId, stock) -> {
+            int delta = stock.drainPending();
+            if (delta != 0) {
+                itemIds.add(itemId);
+                args.add(new Object[]{delta, itemId, delta});
+            }
+        });
+        if (args.isEmpty()) {
+            return;
+        }
+
+        List<Long> conflicted = writeBackTx.execute(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(WRITE_BACK_SQL, args);
+            List<Long> conflicts = new ArrayList<>();
+            List<Object[]> forced = new ArrayList<>();
+            for (int i = 0; i < itemIds.size(); i++) {
+                if (updated[i] == 0) {
+                    //주문은 이미 커밋됐으므로 차감량을 버리면 안 된다.
+                    conflicts.add(itemIds.get(i));
+                    forced.add(new Object[]{args.get(i)[0], itemIds.get(i)});
+                }
+            }
+            if (!forced.isEmpty()) {
+                jdbcTemplate.batchUpdate(FORCE_WRITE_BACK_SQL, forced);
+            }
+            return conflicts;
+        });
+
+        for (Long itemId : conflicted) {
+            resync(itemId);
+        }
+        itemIds.forEach(itemId -> emf.getCache().evict(Item.class, itemId)); //2차 캐시의 재고 값도 버린다.
+        changeVersionTracker.bumpAfterCommit(Item.class); //JDBC 로 바꾼 재고는 엔티티 리스너를 거치지 않는다.
+    }
+
+    /**
+     * 다른 경로에서 DB 재고가 바뀐 경우 카운터를 DB 값에 다시 맞춘다.
+     * 바뀐 만큼만 더하고 빼므로 drainPending() 이후에 들어온 선점, 반환(아직 반영 전 차감량)도 그대로 남는다.
+     */
+    private void resync(Long itemId) {
+        int stockQuantity = loadStockQuantity(itemId);
+        if (stockQuantity < 0) {
+            log.error("재고 초과 판매 itemId={}, stockQuantity={} -> 정산이 필요합니다.", itemId, stockQuantity);
+        } else {
+            log.warn("재고 반영 충돌 itemId={}, stockQuantity={} -> 재고 카운터를 DB 값으로 다시 맞춥니다.", itemId, stockQuantity);
+        }
+        StripedStock stock = stocks.get(itemId);
+        if (stock != null) {
+            stock.resync(stockQuantity);
+        }
+    }
+
+    /**
+     * 메모리 카운터 기준 남은 재고 (아직 카운터가 없으면 DB 값)
+     */
+    public int availableQuantity(Long itemId) {
+        return stockOf(itemId).available();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("재고 반영 중 오류", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flushQuietly();
+        }
+    }
+
+    private StripedStock stockOf(Long itemId) {
+        return stocks.computeIfAbsent(itemId, id -> new StripedStock(loadStockQuantity(id), stripeCount));
+    }
+
+    private int loadStockQuantity(Long itemId) {
+        Integer stockQuantity = jdbcTemplate.queryForObject(
+                "select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        return stockQuantity == null ? 0 : stockQuantity;
+    }
+
+    /**
+     * stripe 으로 나눈 재고 카운터
+     * - 각 stripe 은 CAS 로 차감하고, 어느 stripe 에도 충분한 재고가 없으면 한 번 모아서 다시 나눈다.
+     * - pendingWriteBack: 아직 DB 에 반영되지 않은 차감량(반환은 음수)
+     * - baseQuantity: 카운터가 기준으로 삼는 DB 재고, flush 가 차감량을 가져갈 때마다 줄어든다.
+     *   다른 경로에서 DB 재고가 바뀐 만큼(DB 재고 - baseQuantity)을 카운터에 더한다. (resync)
+     */
+    static final class StripedStock {
+
+        private final AtomicInteger[] stripes;
+        private final LongAdder pendingWriteBack = new LongAdder();
+        private long baseQuantity;
+
+        StripedStock(int stockQuantity, int stripeCount) {
+            baseQuantity = stockQuantity;
+            stripes = new AtomicInteger[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new AtomicInteger();
+            }
+            distribute(stockQuantity);
+        }
+
+        void reserve(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes.length);
+            for (int i = 0; i < stripes.length; i++) {
+                if (tryTake(stripes[(start + i) % stripes.length], quantity)) {
+                    pendingWriteBack.add(quantity);
+                    return;
+                }
+            }
+            reserveSlow(quantity);
+        }
+
+        private synchronized void reserveSlow(int quantity) {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.getAndSet(0);
+            }
+            if (total < quantity) {
+                distribute(total);
+                throw new NotEnoughStockException("need more stock");
+            }
+            distribute(total - quantity);
+            pendingWriteBack.add(quantity);
+        }
+
+        void release(int quantity) {
+            stripes[ThreadLocalRandom.current().nextInt(stripes.length)].addAndGet(quantity);
+            pendingWriteBack.add(-quantity);
+        }
+
+        /**
+         * 카운터에 DB 재고가 바뀐 만큼 더한다.
+         * - reserveSlow 처럼 getAndSet(0) 으로 모은 뒤 addAndGet 으로 나누므로, 그 사이 반환은 잃어버리지 않는다.
+         *   모으는 동안 stripe 이 비어서 실패한 선점은 reserveSlow 에서 이 락을 기다린다.
+         * - pendingWriteBack 은 읽지 않는다. 선점, 반환과 읽는 순서가 엇갈려도 두 번 세지 않는다.
+         */
+        synchronized void resync(int stockQuantity) {
+            long delta = stockQuantity - baseQuantity;
+            baseQuantity = stockQuantity;
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.getAndSet(0);
+            }
+            distribute((int) Math.max(0, total + delta));
+        }
+
+        synchronized int drainPending() {
+            long pending = pendingWriteBack.sum();
+            pendingWriteBack.add(-pending);
+            baseQuantity -= pending;
+            return (int) pending;
+        }
+
+        int available() {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.get();
+            }
+            return total;
+        }
+
+        private boolean tryTake(AtomicInteger stripe, int quantity) {
+            while (true) {
+                int current = stripe.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (stripe.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private void distribute(int quantity) {
+            int base = quantity / stripes.length;
+            int extra = quantity % stripes.length;
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i].addAndGet(base + (i < extra ? 1 : 0));
+            }
+        }
+    }
+}
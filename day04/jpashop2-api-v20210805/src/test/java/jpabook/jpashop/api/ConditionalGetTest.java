@@ -0,0 +1,77 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.monitor.SqlStatisticsFilter;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 조건부 GET
+ * - 회원 가입이 커밋되어야 버전이 바뀌므로 클래스에 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ConditionalGetTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 변경이_없으면_304() throws Exception {
+        //given
+        String etag = etag("/api/v2/members");
+
+        //when then
+        mockMvc.perform(get("/api/v2/members")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .header(SqlStatisticsFilter.STATISTICS_HEADER, "true"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string("X-Sql-Statements", "0"));
+    }
+
+    @Test
+    public void 회원가입_후_ETag_변경() throws Exception {
+        //given
+        String before = etag("/api/v2/members");
+
+        //when
+        Member member = new Member();
+        member.setName("회원" + System.nanoTime());
+        memberService.join(member);
+
+        //then
+        MvcResult result = mockMvc.perform(get("/api/v2/members").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(before, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void 쿼리_파라미터가_다르면_ETag_다름() throws Exception {
+        assertNotEquals(etag("/api/v1/simple-orders"), etag("/api/v4/simple-orders"));
+        assertNotEquals(etag("/api/v3.1/orders?offset=0&limit=1"), etag("/api/v3.1/orders?offset=1&limit=1"));
+    }
+
+    private String etag(String uri) throws Exception {
+        String etag = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
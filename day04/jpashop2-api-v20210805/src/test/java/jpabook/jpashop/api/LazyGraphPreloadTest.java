@@ -0,0 +1,107 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitor.SqlStatisticsFilter;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * preload 직렬화 모드: 주문 수와 상관없이 SQL 실행 횟수가 같아야 한다.
+ * - 배치 페치(default_batch_fetch_size)가 대신 묶어주지 않도록 1 로 둔다.
+ *   force 모드면 이 설정에서 주문 2건일 때 7번, 22건일 때 67번 실행된다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.jackson.lazy-loading=preload",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=1"})
+@AutoConfigureMockMvc
+@Import(LazyGraphPreloadTest.EntityOrderController.class)
+public class LazyGraphPreloadTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired OrderService orderService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 주문수와_상관없이_쿼리수_일정() throws Exception {
+        //given InitDb 주문 2건
+        long few = statements();
+
+        //when 주문 20건 추가 (회원, 상품 모두 새로)
+        for (int i = 0; i < 20; i++) {
+            Member member = createMember();
+            Book book = createBook("BOOK" + i, 10000, 10);
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        long many = statements();
+
+        //then
+        assertEquals("엔티티 수가 늘어도 쿼리 수는 같다.", few, many);
+        assertTrue("주문 1번 + 연관관계(회원, 배송, 주문상품, 상품) 종류마다 1번. actual=" + many, many <= 5);
+    }
+
+    private long statements() throws Exception {
+        String header = mockMvc.perform(get("/test/entity-orders").header(SqlStatisticsFilter.STATISTICS_HEADER, "true"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("X-Sql-Statements");
+        return Long.parseLong(header);
+    }
+
+    private Member createMember() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName("회원" + System.nanoTime());
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member;
+        });
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(price);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book;
+        });
+    }
+
+    /**
+     * 엔티티를 초기화 없이 그대로 반환 (직렬화 중 지연 로딩 대상)
+     */
+    @RestController
+    static class EntityOrderController {
+
+        @Autowired OrderRepository orderRepository;
+
+        @GetMapping("/test/entity-orders")
+        public List<Order> orders() {
+            return orderRepository.findAll();
+        }
+    }
+}
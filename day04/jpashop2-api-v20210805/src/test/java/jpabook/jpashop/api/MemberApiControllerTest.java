@@ -0,0 +1,37 @@
+package jpabook.jpashop.api;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MemberApiControllerTest {
+
+    @Autowired MockMvc mockMvc;
+
+    @Test
+    public void 대량등록_형식_오류는_400_과_그때까지의_결과() throws Exception {
+        String name = "대량API" + System.nanoTime();
+        String ndjson = "{\"name\":\"" + name + "\"}\n" +
+                "{\"name\":\n";
+
+        mockMvc.perform(post("/api/v1/members/import")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.error").isNotEmpty());
+    }
+}
@@ -0,0 +1,112 @@
+package jpabook.jpashop.api;
+
+import com.jayway.jsonpath.JsonPath;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 키셋 페이징 API 의 limit, next 토큰 검증 (InitDb 주문 2건)
+ * - 주문을 커밋해야 하므로 클래스에 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderApiControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired OrderService orderService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 키셋_페이징_limit_은_1_이상() throws Exception {
+        mockMvc.perform(get("/api/v3.2/orders").param("limit", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.next").isNotEmpty());
+
+        mockMvc.perform(get("/api/v3.2/orders").param("limit", "-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)));
+    }
+
+    @Test
+    public void 키셋_페이징_잘못된_토큰은_400() throws Exception {
+        mockMvc.perform(get("/api/v3.2/orders").param("next", "잘못된토큰"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v3.2/orders").param("next", OrderCursor.encode(1L).substring(1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 플랫_페이징_limit_과_잘못된_토큰() throws Exception {
+        mockMvc.perform(get("/api/v6.1/orders").param("limit", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.next").isNotEmpty());
+        mockMvc.perform(get("/api/v6.1/orders").param("next", "잘못된토큰"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 플랫_페이징_주문상품_없는_주문이_있어도_다음_페이지() throws Exception {
+        //given 주문상품 없는 주문, 그 다음 주문
+        Member member = new Member();
+        member.setName("플랫" + System.nanoTime());
+        Long memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("플랫상품");
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+
+        Long emptyOrderId = new TransactionTemplate(transactionManager).execute(status -> {
+            Delivery delivery = new Delivery();
+            delivery.setStatus(DeliveryStatus.READY);
+            Order order = Order.createOrder(em.find(Member.class, memberId), delivery);
+            em.persist(order);
+            return order.getId();
+        });
+        Long nextOrderId = orderService.order(memberId, book.getId(), 1);
+
+        //when 주문상품 없는 주문 한 건짜리 페이지
+        String body = mockMvc.perform(get("/api/v6.1/orders")
+                        .param("next", OrderCursor.encode(emptyOrderId - 1))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(0)))
+                .andReturn().getResponse().getContentAsString();
+        String next = JsonPath.read(body, "$.next");
+
+        //then 다음 페이지로 이어진다.
+        mockMvc.perform(get("/api/v6.1/orders").param("next", next).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[*].orderId", contains(nextOrderId.intValue())))
+                .andExpect(jsonPath("$.next", is((String) null)));
+    }
+}
@@ -0,0 +1,106 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * bounded 모드: 핸들러는 전용 스레드에서 실행되고, 동시 실행 수를 넘으면 503
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.web.execution.mode=bounded",
+        "jpashop.web.execution.max-concurrency=1",
+        "jpashop.web.execution.acquire-timeout-ms=0",
+        "jpashop.web.execution.packages=jpabook.jpashop.api,jpabook.jpashop.controller,jpabook.jpashop.config"})
+@AutoConfigureMockMvc
+@Import(HandlerExecutionTest.BlockingController.class)
+public class HandlerExecutionTest {
+
+    static final CountDownLatch release = new CountDownLatch(1);
+
+    @Autowired MockMvc mockMvc;
+    @Autowired HandlerExecutor handlerExecutor;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void 전용_스레드에서_실행() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v3/simple-orders"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Sql-Statements", "1")); //핸들러 스레드의 쿼리도 센다.
+    }
+
+    @Test
+    public void 동시_실행수_초과시_503() throws Exception {
+        //given 자리 하나를 차지하고 있는 요청
+        MvcResult blocking = mockMvc.perform(get("/test/blocking"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //when then
+        mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isServiceUnavailable());
+
+        release.countDown();
+        mockMvc.perform(asyncDispatch(blocking))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("handler-")));
+        assertEquals(HandlerExecutor.Mode.BOUNDED, handlerExecutor.getMode());
+    }
+
+    @Test
+    public void 자리는_비동기_요청이_끝나야_반환() throws Exception {
+        //given 핸들러는 끝났지만 비동기 디스패치(OSIV 커넥션 반환) 전
+        MvcResult result = mockMvc.perform(get("/api/v2/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(10_000);
+        assertEquals(1.0, activeHandlers(), 0.0);
+
+        //when
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        //then
+        assertEquals(0.0, activeHandlers(), 0.0);
+    }
+
+    private double activeHandlers() {
+        return meterRegistry.get("jpashop.web.handler.active").gauge().value();
+    }
+
+    @RestController
+    static class BlockingController {
+
+        @GetMapping("/test/blocking")
+        public String blocking() throws InterruptedException {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jpabook.jpashop.config;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 두 개를 primary / replica 로 두고 라우팅을 확인한다.
+ */
+public class ReplicationRoutingDataSourceTest {
+
+    @Test
+    public void 읽기전용_트랜잭션은_replica() throws Exception {
+        //given
+        DataSource dataSource = ReplicationRoutingDataSource.lazy(h2("primary"), h2("replica"), Duration.ZERO);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //when
+        String write = writeTx(dataSource).execute(status -> currentDatabase(jdbcTemplate));
+        String read = readOnlyTx(dataSource).execute(status -> currentDatabase(jdbcTemplate));
+
+        //then
+        assertTrue(write.startsWith("primary"));
+        assertTrue(read.startsWith("replica"));
+        assertTrue("트랜잭션 밖은 primary", currentDatabase(jdbcTemplate).startsWith("primary"));
+    }
+
+    @Test
+    public void 복제지연_허용시간안의_읽기는_primary() throws Exception {
+        //given
+        DataSource dataSource = ReplicationRoutingDataSource.lazy(h2("primary"), h2("replica"), Duration.ofMinutes(1));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //when
+        String beforeWrite = readOnlyTx(dataSource).execute(status -> currentDatabase(jdbcTemplate));
+        writeTx(dataSource).execute(status -> currentDatabase(jdbcTemplate));
+        String afterWrite = readOnlyTx(dataSource).execute(status -> currentDatabase(jdbcTemplate));
+
+        //then
+        assertTrue(beforeWrite.startsWith("replica"));
+        assertTrue("쓰기 직후 읽기는 primary", afterWrite.startsWith("primary"));
+    }
+
+    private String currentDatabase(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select database()", String.class).toLowerCase();
+    }
+
+    private TransactionTemplate writeTx(DataSource dataSource) {
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    private TransactionTemplate readOnlyTx(DataSource dataSource) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        tx.setReadOnly(true);
+        return tx;
+    }
+
+    private DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,86 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.exception.SqlBudgetExceededException;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * InitDb 의 주문 2건(회원 2명)으로 요청 단위 SQL 통계를 확인한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.sql-stats.strict=true")
+@AutoConfigureMockMvc
+@Import(SqlStatisticsFilterTest.NPlusOneController.class)
+public class SqlStatisticsFilterTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void fetch_join_쿼리_1번() throws Exception {
+        mockMvc.perform(get("/api/v3/simple-orders"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Sql-Statements", "1"))
+                .andExpect(header().string("X-Sql-Collection-Fetches", "0"))
+                .andExpect(header().exists("X-Sql-Jdbc-Time-Ms"));
+    }
+
+    @Test
+    public void 예산이_없는_API_는_요청할_때만_헤더() throws Exception {
+        long before = statementsCount();
+
+        //when 헤더 요청 없음 -> 버퍼링 없이 메트릭만
+        mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Sql-Statements"));
+        assertEquals(before + 1, statementsCount());
+
+        //when 헤더 요청
+        mockMvc.perform(get("/api/v2/members").header(SqlStatisticsFilter.STATISTICS_HEADER, "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Sql-Statements"));
+    }
+
+    @Test(expected = SqlBudgetExceededException.class)
+    public void 지연로딩_N_1_예산초과() throws Exception {
+        mockMvc.perform(get("/test/n-plus-one"));
+    }
+
+    private long statementsCount() {
+        return meterRegistry.summary("jpashop.sql.statements", "method", "GET", "uri", "/api/v2/members").count();
+    }
+
+    @RestController
+    static class NPlusOneController {
+
+        @Autowired OrderRepository orderRepository;
+
+        @SqlBudget(statements = 1)
+        @GetMapping("/test/n-plus-one")
+        public List<String> memberNames() {
+            return orderRepository.findAll().stream()
+                    .map(Order::getMember)
+                    .map(member -> member.getName()) //회원마다 쿼리
+                    .collect(Collectors.toList());
+        }
+    }
+}
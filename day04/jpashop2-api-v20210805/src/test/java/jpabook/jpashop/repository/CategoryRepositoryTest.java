@@ -0,0 +1,111 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.CategoryTree;
+import jpabook.jpashop.service.CategoryTreeSnapshot;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 카테고리 트리 테스트
+ * - 커밋 후 스냅샷 갱신을 확인해야 하므로 클래스에 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CategoryRepositoryTest {
+
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired CategoryTree categoryTree;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 하위트리_상품조회_스냅샷() throws Exception {
+        //given 도서 > 국내도서 > 소설
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Category root = category("도서");
+            categoryRepository.save(root);
+            Category domestic = category("국내도서");
+            root.addChildCategory(domestic);
+            categoryRepository.save(domestic);
+            Category novel = category("소설");
+            domestic.addChildCategory(novel);
+            categoryRepository.save(novel);
+
+            categoryRepository.addItem(root.getId(), book("JPA").getId());
+            categoryRepository.addItem(novel.getId(), book("토지").getId());
+            return new Long[]{root.getId(), domestic.getId(), novel.getId()};
+        });
+
+        //when
+        List<String> rootItems = tx.execute(status -> names(categoryRepository.findItemsInSubtree(ids[0])));
+        List<String> domesticItems = tx.execute(status -> names(categoryRepository.findItemsInSubtree(ids[1])));
+        CategoryTreeSnapshot snapshot = categoryTree.current();
+
+        //then
+        assertEquals(2, rootItems.size());
+        assertEquals("하위 카테고리 상품만 조회", List.of("토지"), domesticItems);
+        assertEquals("커밋 후 스냅샷 갱신", List.of("도서", "국내도서", "소설"),
+                snapshot.breadcrumb(ids[2]).stream().map(CategoryTreeSnapshot.Node::getName).collect(Collectors.toList()));
+        assertEquals(2, snapshot.get(ids[2]).getDepth());
+    }
+
+    @Test
+    public void 카테고리상품_추가_삭제_페이징() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            //given
+            Category category = category("음반");
+            categoryRepository.save(category);
+            Long first = book("A").getId();
+            Long second = book("B").getId();
+            Long third = book("C").getId();
+
+            //when
+            assertTrue(categoryRepository.addItem(category.getId(), first));
+            assertTrue(categoryRepository.addItem(category.getId(), second));
+            assertTrue(categoryRepository.addItem(category.getId(), third));
+            assertFalse("이미 속한 상품은 다시 추가하지 않는다.", categoryRepository.addItem(category.getId(), first));
+            em.flush();
+            assertTrue(categoryRepository.removeItem(category.getId(), second));
+
+            //then
+            assertEquals(2, categoryRepository.countItems(category.getId()));
+            assertEquals(List.of("C"), names(categoryRepository.findItems(category.getId(), 1, 10)));
+            assertEquals(1, categoryRepository.findCategoriesOfItem(third).size());
+        });
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return category;
+    }
+
+    private Book book(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book;
+    }
+
+    private List<String> names(List<Item> items) {
+        return items.stream().map(Item::getName).collect(Collectors.toList());
+    }
+}
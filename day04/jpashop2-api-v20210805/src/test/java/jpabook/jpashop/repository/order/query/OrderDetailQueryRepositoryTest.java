@@ -0,0 +1,150 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.QueryComposer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 동시 조회는 별도 트랜잭션에서 실행되므로 커밋된 데이터(InitDb 주문 2건)로 확인한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderDetailQueryRepositoryTest {
+
+    @Autowired OrderDetailQueryRepository orderDetailQueryRepository;
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired QueryComposer queryComposer;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 주문상세_조립() throws Exception {
+        //given userA 주문의 첫 번째 상품을 카테고리에 넣는다.
+        Long[] ids = new TransactionTemplate(transactionManager).execute(status -> {
+            Long orderId = em.createQuery("select o.id from Order o join o.member m where m.name = 'userA'", Long.class)
+                    .getSingleResult();
+            Long itemId = em.createQuery("select i.id from Item i where i.name = 'JPA1 BOOK'", Long.class)
+                    .getSingleResult();
+            Category category = new Category();
+            category.setName("도서" + System.nanoTime());
+            categoryRepository.save(category);
+            categoryRepository.addItem(category.getId(), itemId);
+            return new Long[]{orderId, itemId, category.getId()};
+        });
+
+        //when
+        OrderDetailQueryDto detail = orderDetailQueryRepository.findOrderDetail(ids[0]).orElseThrow();
+
+        //then
+        assertEquals("userA", detail.getMember().getName());
+        assertEquals("서울", detail.getDelivery().getAddress().getCity());
+        assertEquals(2, detail.getOrderItems().size());
+        assertEquals(50000, detail.getTotalPrice());
+        assertEquals(1, detail.getCategories().size());
+        assertEquals(ids[1], detail.getCategories().get(0).getItemId());
+        assertEquals(ids[2], detail.getCategories().get(0).getCategoryId());
+        assertFalse("없는 주문", orderDetailQueryRepository.findOrderDetail(-1L).isPresent());
+    }
+
+    @Test
+    public void 조회가_동시에_실행된다() throws Exception {
+        //given 세 조회가 모두 도착해야 통과하는 barrier (순서대로 실행되면 시간 초과)
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        QueryComposer.Composition composition = queryComposer.compose();
+
+        //when
+        CompletableFuture<Integer> first = composition.fork(() -> awaitAndReturn(barrier, 1));
+        CompletableFuture<Integer> second = composition.fork(() -> awaitAndReturn(barrier, 2));
+        CompletableFuture<Integer> third = composition.fork(() -> awaitAndReturn(barrier, 3));
+        composition.join();
+
+        //then
+        assertEquals(List.of(1, 2, 3), List.of(first.join(), second.join(), third.join()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 하나라도_실패하면_예외() throws Exception {
+        QueryComposer.Composition composition = queryComposer.compose();
+        composition.fork(() -> sleepAndReturn(1));
+        composition.fork(() -> {
+            throw new IllegalStateException("조회 실패");
+        });
+        composition.join();
+    }
+
+    @Test
+    public void 하나라도_실패하면_실행중인_조회를_인터럽트() throws Exception {
+        //given 오래 걸리는 조회가 시작된 뒤에 실패
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        QueryComposer.Composition composition = queryComposer.compose();
+        CompletableFuture<Integer> slow = composition.fork(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        composition.fork(() -> {
+            awaitQuietly(started);
+            throw new IllegalStateException("조회 실패");
+        });
+
+        //when
+        try {
+            composition.join();
+            fail("예외가 발생해야 한다.");
+        } catch (IllegalStateException e) {
+            //then
+        }
+        assertTrue("실행 중인 조회가 인터럽트되어야 한다.", interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.isCancelled());
+    }
+
+    private int awaitAndReturn(CyclicBarrier barrier, int value) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException("조회가 동시에 실행되지 않았다.", e);
+        }
+        return value;
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int sleepAndReturn(int value) {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.repository.order.query;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class OrderItemQueryLoaderTest {
+
+    @Autowired OrderItemQueryLoader orderItemQueryLoader;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    public void chunk_병렬조회_결과_병합() throws Exception {
+        //given: InitDb 에서 커밋된 주문 2건 -> chunk 크기 1 이면 2개의 chunk 로 병렬 조회
+        List<Long> orderIds = em.createQuery("select o.id from Order o", Long.class).getResultList();
+        OrderItemQueryLoader chunkLoader = new OrderItemQueryLoader(em, emf, 1, 2);
+
+        //when
+        Map<Long, List<OrderItemQueryDto>> orderItemMap;
+        try {
+            orderItemMap = chunkLoader.findOrderItemMap(orderIds);
+        } finally {
+            chunkLoader.shutdown();
+        }
+
+        //then
+        assertEquals("주문 수만큼 결과가 합쳐져야 한다.", orderIds.size(), orderItemMap.size());
+        orderIds.forEach(id -> assertEquals("주문마다 주문상품 2개", 2, orderItemMap.get(id).size()));
+    }
+
+    @Test
+    public void 추가_커넥션_한도를_넘는_chunk_는_호출한_스레드에서_조회() throws Exception {
+        //given: chunk 3개, 추가 커넥션은 1개까지 -> 나머지 chunk 는 호출한 EntityManager 로 조회
+        List<Long> orderIds = new ArrayList<>(em.createQuery("select o.id from Order o", Long.class).getResultList());
+        orderIds.add(-1L);
+        OrderItemQueryLoader chunkLoader = new OrderItemQueryLoader(em, emf, 1, 1);
+
+        //when
+        Map<Long, List<OrderItemQueryDto>> orderItemMap;
+        try {
+            orderItemMap = chunkLoader.findOrderItemMap(orderIds);
+        } finally {
+            chunkLoader.shutdown();
+        }
+
+        //then
+        assertEquals(orderIds.size() - 1, orderItemMap.size());
+        orderItemMap.values().forEach(orderItems -> assertEquals(2, orderItems.size()));
+    }
+
+    /**
+     * IN 절 크기를 1 ~ 300 으로 바꿔가며 실행 계획이 재사용되는지 확인한다.
+     * padding 이 없으면 크기마다 실행 계획이 새로 만들어져서 약 300번 miss 가 난다.
+     * 적중률과 조회 시간은 InClausePaddingBenchmark 로 잰다.
+     */
+    @Test
+    public void IN절_padding_실행계획_재사용() throws Exception {
+        //given
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        int runs = 300;
+
+        //when
+        for (int size = 1; size <= runs; size++) {
+            List<Long> orderIds = new ArrayList<>();
+            for (long id = 1; id <= size; id++) {
+                orderIds.add(-id); //존재하지 않는 id, 실행 계획만 확인
+            }
+            orderItemQueryLoader.findOrderItemMap(orderIds);
+        }
+
+        //then
+        long miss = statistics.getQueryPlanCacheMissCount();
+
+        //1, 2, 4, ..., 512 -> 크기별 계획 10개 + 원본 쿼리 1개 정도만 miss
+        assertTrue("padding 으로 실행 계획이 재사용되어야 한다. miss=" + miss, miss <= 16);
+    }
+}
@@ -0,0 +1,127 @@
+package jpabook.jpashop.repository.order.search;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearch.NameMatch;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderSearchRepositoryTest {
+
+    @Autowired OrderSearchRepository orderSearchRepository;
+    @Autowired OrderService orderService;
+    @Autowired EntityManager em;
+
+    @Test
+    public void 회원이름_검색방식() throws Exception {
+        //given
+        String prefix = "검색" + System.nanoTime();
+        Long kim = order(prefix + "김");
+        Long lee = order(prefix + "이");
+        Long other = order("다른" + prefix);
+        em.flush();
+        em.clear();
+
+        //when then
+        assertEquals(List.of(kim, lee), ids(search(prefix, NameMatch.PREFIX, null)));
+        assertEquals(List.of(kim), ids(search(prefix + "김", NameMatch.EXACT, null)));
+        assertEquals(List.of(kim, lee, other), ids(search(prefix, NameMatch.CONTAINS, null)));
+        assertTrue("% 는 와일드카드가 아니다.", search("검색%", NameMatch.PREFIX, null).getOrders().isEmpty());
+    }
+
+    @Test
+    public void 상태_검색_키셋_페이지() throws Exception {
+        //given 한 회원의 주문 5건 중 2건 취소
+        String name = "페이지" + System.nanoTime();
+        Member member = member(name);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(order(member));
+        }
+        orderService.cancelOrder(orderIds.get(1));
+        orderService.cancelOrder(orderIds.get(3));
+        em.flush();
+        em.clear();
+
+        //when
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(name);
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        OrderSearchPage first = orderSearchRepository.search(orderSearch, null, 2);
+        OrderSearchPage second = orderSearchRepository.search(orderSearch, first.getNextOrderId(), 2);
+
+        //then
+        assertEquals(List.of(orderIds.get(0), orderIds.get(2)), ids(first));
+        assertTrue(first.isHasNext());
+        assertEquals(List.of(orderIds.get(4)), ids(second));
+        assertFalse(second.isHasNext());
+        assertNull(second.getNextOrderId());
+    }
+
+    @Test
+    public void 같은_필터_조합은_같은_JPQL() throws Exception {
+        //given
+        search("a", NameMatch.PREFIX, null);
+        int shapes = orderSearchRepository.cachedShapeCount();
+
+        //when 검색어, 검색 방식(PREFIX/CONTAINS 는 같은 like), 커서 값만 다른 요청
+        search("b", NameMatch.PREFIX, null);
+        search("c", NameMatch.CONTAINS, null);
+
+        //then
+        assertEquals(shapes, orderSearchRepository.cachedShapeCount());
+    }
+
+    private OrderSearchPage search(String name, NameMatch nameMatch, Long lastOrderId) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(name);
+        orderSearch.setNameMatch(nameMatch);
+        return orderSearchRepository.search(orderSearch, lastOrderId, 100);
+    }
+
+    private List<Long> ids(OrderSearchPage page) {
+        return page.getOrders().stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Long order(String memberName) {
+        return order(member(memberName));
+    }
+
+    private Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Long order(Member member) {
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return orderService.order(member.getId(), book.getId(), 1);
+    }
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberImportService.Format;
+import jpabook.jpashop.service.MemberImportService.ImportResult;
+import jpabook.jpashop.service.MemberImportService.Reason;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * chunk 마다 커밋하므로 클래스에 @Transactional 을 붙이지 않는다.
+ * chunk-size 를 작게 해서 여러 chunk 에 걸친 중복도 확인한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.member.import.chunk-size=3")
+public class MemberImportServiceTest {
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberService memberService;
+    @Autowired MemberNameFilter memberNameFilter;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void CSV_대량등록() throws Exception {
+        //given 이미 가입된 회원 1명
+        String prefix = "대량" + System.nanoTime();
+        Member member = new Member();
+        member.setName(prefix + "기존");
+        memberService.join(member);
+
+        String csv = "zipcode,name,city,street\n" +
+                "1111," + prefix + "A,서울,1\n" +
+                "2222," + prefix + "B,부산,2\n" +
+                "3333,,대구,3\n" +               //이름 없음
+                "4444," + prefix + "기존,대전,4\n" + //이미 가입됨
+                "5555," + prefix + "A,광주,5\n" +   //파일 안에서 중복 (다른 chunk)
+                "6666,\" " + prefix + "C \",울산,6\n";
+
+        //when
+        ImportResult result = memberImportService.importMembers(stream(csv), Format.CSV);
+
+        //then
+        assertEquals(6, result.getTotal());
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getDuplicated());
+        assertEquals(1, result.getInvalid());
+        assertEquals(Reason.INVALID, result.getRejections().get(0).getReason());
+        assertEquals(3, result.getRejections().get(0).getRow());
+
+        assertEquals("부산", jdbcTemplate.queryForObject(
+                "select city from member where name = ?", String.class, prefix + "B"));
+        assertEquals("이름 앞뒤 공백은 지운다.", Integer.valueOf(1), jdbcTemplate.queryForObject(
+                "select count(*) from member where name = ?", Integer.class, prefix + "C"));
+        assertTrue(memberNameFilter.mightContain(prefix + "C"));
+    }
+
+    @Test
+    public void NDJSON_대량등록() throws Exception {
+        //given
+        String prefix = "줄" + System.nanoTime();
+        String ndjson = "{\"name\":\"" + prefix + "1\",\"city\":\"서울\",\"grade\":\"VIP\"}\n" +
+                "\n" +
+                "{\"name\":\"" + prefix + "2\"}\n";
+
+        //when
+        ImportResult result = memberImportService.importMembers(stream(ndjson), Format.NDJSON);
+
+        //then
+        assertEquals(2, result.getTotal());
+        assertEquals(2, result.getImported());
+        assertNull(result.getError());
+        assertEquals("서울", jdbcTemplate.queryForObject(
+                "select city from member where name = ?", String.class, prefix + "1"));
+    }
+
+    @Test
+    public void 형식이_잘못된_행에서_멈추고_앞의_행은_등록() throws Exception {
+        //given 4번째 행이 잘못된 JSON (앞 3행은 첫 chunk, 다음 행은 두 번째 chunk)
+        String prefix = "형식" + System.nanoTime();
+        String ndjson = "{\"name\":\"" + prefix + "1\"}\n" +
+                "{\"name\":\"" + prefix + "2\"}\n" +
+                "{\"name\":\"" + prefix + "3\"}\n" +
+                "{\"name\":\"" + prefix + "4\"}\n" +
+                "{\"name\":\n" +
+                "{\"name\":\"" + prefix + "6\"}\n";
+
+        //when
+        ImportResult result = memberImportService.importMembers(stream(ndjson), Format.NDJSON);
+
+        //then 잘못된 행 앞까지 등록
+        assertEquals(4, result.getImported());
+        assertTrue(result.getError(), result.getError().contains("row=5"));
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject(
+                "select count(*) from member where name = ?", Integer.class, prefix + "6"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 대량등록한_이름으로_가입하면_중복() throws Exception {
+        //given
+        String name = "대량가입" + System.nanoTime();
+        memberImportService.importMembers(stream("name\n" + name + "\n"), Format.CSV);
+
+        //when
+        Member member = new Member();
+        member.setName(name);
+        memberService.join(member);
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
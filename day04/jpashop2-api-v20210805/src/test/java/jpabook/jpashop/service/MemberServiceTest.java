@@ -2,14 +2,20 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepositoryOld;
+import jpabook.jpashop.search.SearchDocument;
+import jpabook.jpashop.search.SearchIndex;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -22,6 +28,9 @@ public class MemberServiceTest {
     @Autowired
     MemberRepositoryOld memberRepository;
     @Autowired EntityManager em;
+    @Autowired MemberNameFilter memberNameFilter;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired SearchIndex searchIndex;
 
     @Test
     public void 회원가입() throws Exception {
@@ -52,4 +61,94 @@ public class MemberServiceTest {
         //then
         fail("예외가 발생해야 한다.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void 블룸필터_새이름은_조회생략() throws Exception {
+        //given
+        String name = "새회원" + System.nanoTime();
+        assertTrue(memberNameFilter.isReady());
+        assertFalse("가입 전에는 필터에 없다.", memberNameFilter.mightContain(name));
+
+        //when
+        Member member = new Member();
+        member.setName(name);
+        memberService.join(member);
+
+        //then
+        assertTrue(memberNameFilter.mightContain(name));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 필터를_통과해도_유니크_제약조건으로_중복_예외() throws Exception {
+        //given 필터를 거치지 않고 들어온 회원 (다른 인스턴스에서 동시에 가입한 경우)
+        String name = "동시가입" + System.nanoTime();
+        jdbcTemplate.update("insert into member (member_id, name) values (?, ?)", -1L, name);
+        assertFalse(memberNameFilter.mightContain(name));
+
+        //when
+        Member member = new Member();
+        member.setName(name);
+        memberService.join(member); //조회 없이 INSERT 하다가 제약조건 위반
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 회원이름_수정() throws Exception {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        Long id = memberService.join(member("수정전" + suffix));
+
+        //when
+        memberService.update(id, "수정후" + suffix);
+
+        //then 영속성 컨텍스트의 예전 값이 아니라 DB 값을 다시 읽는다.
+        assertEquals("수정후" + suffix, memberRepository.findOne(id).getName());
+        assertTrue(memberNameFilter.mightContain("수정후" + suffix));
+    }
+
+    @Test
+    public void 회원이름_일괄수정() throws Exception {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        Long id1 = memberService.join(member("일괄A" + suffix));
+        Long id2 = memberService.join(member("일괄B" + suffix));
+
+        //when 없는 id 는 건너뛴다.
+        int updated = memberService.updateNames(Map.of(id1, "변경A" + suffix, id2, "변경B" + suffix, Long.MAX_VALUE, "없음" + suffix));
+
+        //then
+        assertEquals(2, updated);
+        assertEquals("변경A" + suffix, jdbcTemplate.queryForObject("select name from member where member_id = ?", String.class, id1));
+        assertEquals("변경B" + suffix, memberRepository.findOne(id2).getName());
+        @SuppressWarnings("unchecked")
+        Map<String, SearchDocument> indexed = (Map<String, SearchDocument>) TransactionSynchronizationManager.getResource(searchIndex);
+        assertEquals("바뀐 회원만 검색 인덱스에 반영", Set.of("MEMBER:" + id1, "MEMBER:" + id2), indexed.keySet());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 없는_회원_수정_예외() throws Exception {
+        memberService.update(Long.MAX_VALUE, "없는회원" + System.nanoTime());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 다른_회원_이름으로_수정_예외() throws Exception {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        memberService.join(member("먼저" + suffix));
+        Long id = memberService.join(member("나중" + suffix));
+
+        //when
+        memberService.update(id, "먼저" + suffix);
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    private Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return member;
+    }
+}
@@ -0,0 +1,149 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.ServerBusyException;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문 취소 파이프라인 테스트
+ * - 워커 스레드가 별도 트랜잭션으로 처리하므로 클래스에 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderCancellationPipelineTest {
+
+    @Autowired OrderService orderService;
+    @Autowired OrderCancellationPipeline orderCancellationPipeline;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderRepository orderRepository;
+    @Autowired StockReservationService stockReservationService;
+    @Autowired EntityManagerFactory emf;
+    @Autowired ChangeVersionTracker changeVersionTracker;
+
+    @Test
+    public void 대량취소_재고복구() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 100);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            orderIds.add(orderService.order(member.getId(), book.getId(), 3));
+        }
+
+        //when
+        List<CompletableFuture<Void>> futures = orderCancellationPipeline.submitAll(orderIds);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        //then
+        assertEquals("취소한 수량만큼 재고가 돌아와야 한다.", Integer.valueOf(100),
+                jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId()));
+        assertEquals("모든 주문이 취소 상태", Integer.valueOf(30),
+                jdbcTemplate.queryForObject("select count(*) from orders where member_id = ? and status = 'CANCEL'",
+                        Integer.class, member.getId()));
+    }
+
+    @Test
+    public void 배송완료_주문은_거절() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long shipped = orderService.order(member.getId(), book.getId(), 2);
+        Long ordered = orderService.order(member.getId(), book.getId(), 3);
+        jdbcTemplate.update("update delivery set status = 'COMP'" +
+                " where delivery_id = (select delivery_id from orders where order_id = ?)", shipped);
+
+        //when
+        List<CompletableFuture<Void>> futures = orderCancellationPipeline.submitAll(Arrays.asList(shipped, ordered));
+        futures.get(1).get(30, TimeUnit.SECONDS);
+
+        //then
+        try {
+            futures.get(0).get(30, TimeUnit.SECONDS);
+            fail("배송완료 주문은 취소되면 안된다.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("배송완료 주문 수량만 빠져 있어야 한다.", Integer.valueOf(8),
+                jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId()));
+        assertEquals("ORDER",
+                jdbcTemplate.queryForObject("select status from orders where order_id = ?", String.class, shipped));
+    }
+
+    @Test
+    public void 큐_자리가_모자라면_하나도_접수하지_않고_503() throws Exception {
+        //given 큐 자리 3개
+        OrderCancellationPipeline pipeline = new OrderCancellationPipeline(orderRepository, stockReservationService,
+                jdbcTemplate, emf, changeVersionTracker, transactionManager, new SimpleMeterRegistry(), 3, 500);
+        try {
+            Member member = createMember();
+            Book book = createBook("시골 JPA", 10000, 10);
+            List<Long> orderIds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                orderIds.add(orderService.order(member.getId(), book.getId(), 1));
+            }
+
+            //when
+            try {
+                pipeline.submitAll(orderIds);
+                fail("자리가 모자라면 ServerBusyException");
+            } catch (ServerBusyException e) {
+                //then
+            }
+
+            //then 나중에 넣은 요청이 처리될 때까지 앞의 주문은 하나도 취소되지 않는다. (큐는 FIFO)
+            pipeline.submitAll(orderIds.subList(0, 1)).get(0).get(30, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(1),
+                    jdbcTemplate.queryForObject("select count(*) from orders where member_id = ? and status = 'CANCEL'",
+                            Integer.class, member.getId()));
+            assertEquals(Integer.valueOf(7),
+                    jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId()));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private Member createMember() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName("회원" + System.nanoTime());
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member;
+        });
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(price);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book;
+        });
+    }
+}
@@ -16,6 +16,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -46,6 +49,7 @@ public class OrderServiceTest {
         assertEquals("상품 주문시 상태는 ORDER", OrderStatus.ORDER, getOrder.getStatus());
         assertEquals("주문한 상품 종류 수가 정확해야 한다.", 1, getOrder.getOrderItems().size());
         assertEquals("주문 가격은 가격 * 수량이다.", 10000 * orderCount, getOrder.getTotalPrice());
+        assertEquals("주문 수량 합계", orderCount, getOrder.getItemCount());
         assertEquals("주문 수량만큼 재고가 줄어야 한다.", 8, book.getStockQuantity());
     }
 
@@ -84,6 +88,32 @@ public class OrderServiceTest {
         assertEquals("주문이 취소된 상품은 그만큼 재고가 증가해야 한다.", 10, item.getStockQuantity());
     }
 
+    @Test
+    public void 대량주문() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("시골 스프링", 20000, 10);
+
+        List<OrderCommand> commands = Arrays.asList(
+                new OrderCommand(member.getId(), Arrays.asList(
+                        new OrderCommand.OrderLine(book1.getId(), 1),
+                        new OrderCommand.OrderLine(book2.getId(), 2))),
+                new OrderCommand(member.getId(), Collections.singletonList(
+                        new OrderCommand.OrderLine(book1.getId(), 3))));
+
+        //when
+        List<Long> orderIds = orderService.orderBulk(commands);
+
+        //then
+        assertEquals("요청한 주문 수만큼 생성되어야 한다.", 2, orderIds.size());
+        Order first = orderRepository.findOne(orderIds.get(0));
+        assertEquals("주문상품 종류 수", 2, first.getOrderItems().size());
+        assertEquals("주문 가격은 가격 * 수량의 합이다.", 10000 + 20000 * 2, first.getTotalPrice());
+        assertEquals("같은 상품의 재고는 주문마다 누적해서 줄어야 한다.", 6, book1.getStockQuantity());
+        assertEquals(8, book2.getStockQuantity());
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
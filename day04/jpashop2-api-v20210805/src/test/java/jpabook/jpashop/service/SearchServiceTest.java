@@ -0,0 +1,196 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.search.SearchDocument;
+import jpabook.jpashop.search.SearchIndex;
+import jpabook.jpashop.search.SearchIndexRebuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 검색 인덱스는 커밋 후 반영되므로 클래스에 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SearchServiceTest {
+
+    @Autowired SearchService searchService;
+    @Autowired SearchIndex searchIndex;
+    @Autowired SearchIndexRebuilder searchIndexRebuilder;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 회원이름_검색() throws Exception {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        Member member = new Member();
+        member.setName("홍길동" + suffix);
+        Long memberId = memberService.join(member);
+        searchIndex.refresh();
+
+        //when then
+        assertEquals("중간 일치", List.of(memberId), memberIds("길동" + suffix));
+        assertEquals("앞부분 일치", List.of(memberId), memberIds("홍길동" + suffix.substring(0, 5)));
+        assertTrue(memberIds("없는이름" + suffix).isEmpty());
+    }
+
+    @Test
+    public void limit_이_0_이하면_1건() throws Exception {
+        //given
+        String name = "한도" + System.nanoTime();
+        Member member = new Member();
+        member.setName(name);
+        Long memberId = memberService.join(member);
+        searchIndex.refresh();
+
+        //when then
+        assertEquals(List.of(memberId), searchService.searchMembers(name, 0).stream()
+                .map(Member::getId)
+                .collect(Collectors.toList()));
+        assertEquals(1, searchService.searchMembers(name, -5).size());
+        assertTrue(searchService.searchItems("JPA", Integer.MIN_VALUE).size() <= 1);
+    }
+
+    @Test
+    public void 도서_저자_ISBN_검색() throws Exception {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        Book book = new Book();
+        book.setName("자바 ORM 표준 JPA 프로그래밍 " + suffix);
+        book.setAuthor("김영한" + suffix);
+        book.setIsbn("978-89-" + suffix);
+        itemService.saveItem(book);
+        searchIndex.refresh();
+
+        //when then
+        assertEquals("상품 이름 단어", List.of(book.getId()), itemIds("표준 " + suffix));
+        assertEquals("저자", List.of(book.getId()), itemIds("김영한" + suffix));
+        assertEquals("ISBN '-' 무시", List.of(book.getId()), itemIds("97889" + suffix));
+    }
+
+    @Test
+    public void 색인하는_필드가_바뀔_때만_다시_색인() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("재고변경" + System.nanoTime());
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Item item = em.find(Item.class, book.getId());
+
+            //when 재고만 바뀜
+            item.removeStock(1);
+            em.flush();
+
+            //then
+            assertNull("반영할 변경 없음", TransactionSynchronizationManager.getResource(searchIndex));
+
+            //when 이름이 바뀜
+            item.setName(item.getName() + "2");
+            em.flush();
+
+            //then
+            assertNotNull(TransactionSynchronizationManager.getResource(searchIndex));
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    public void DB에서_인덱스_재생성() throws Exception {
+        //given 인덱스를 비운다.
+        String suffix = String.valueOf(System.nanoTime());
+        Member member = new Member();
+        member.setName("재생성" + suffix);
+        Long memberId = memberService.join(member);
+        searchIndex.deleteAll();
+        searchIndex.refresh();
+        assertTrue(memberIds("재생성" + suffix).isEmpty());
+
+        //when
+        SearchIndexRebuilder.RebuildResult result = searchIndexRebuilder.rebuild();
+
+        //then
+        assertTrue(result.getMembers() > 0);
+        assertEquals(List.of(memberId), memberIds("재생성" + suffix));
+        assertFalse("InitDb 상품", itemIds("JPA1").isEmpty());
+    }
+
+    @Test
+    public void 재생성_중에는_재생성_전_인덱스로_검색() throws Exception {
+        //given
+        String name = "재생성중" + System.nanoTime();
+        Member member = new Member();
+        member.setName(name);
+        Long memberId = memberService.join(member);
+        searchIndex.refresh();
+
+        //when 비운 인덱스를 아직 다 채우지 않음
+        searchIndex.beginRebuild();
+        try {
+            searchIndex.refresh();
+            Thread.sleep(400); //백그라운드 refresh(200ms) 도 건너뛴다.
+
+            //then
+            assertEquals(List.of(memberId), memberIds(name));
+        } finally {
+            searchIndex.finishRebuild();
+        }
+        assertTrue("다 채우지 않은 채 끝냄", memberIds(name).isEmpty());
+        searchIndexRebuilder.rebuild();
+        assertEquals(List.of(memberId), memberIds(name));
+    }
+
+    @Test
+    public void 재생성_중_바뀐_이름을_읽어둔_chunk_가_덮어쓰지_않는다() throws Exception {
+        //given 재생성이 옛 이름을 읽어둔 회원
+        String suffix = String.valueOf(System.nanoTime());
+        Member member = new Member();
+        member.setName("옛이름" + suffix);
+        Long memberId = memberService.join(member);
+        SearchDocument stale = SearchDocument.member(memberId, "옛이름" + suffix);
+
+        searchIndex.beginRebuild();
+        try {
+            //when 그 사이 이름이 바뀌어 먼저 반영되고, 읽어둔 chunk 가 나중에 반영됨
+            memberService.update(memberId, "새이름" + suffix);
+            searchIndex.updateForRebuild(List.of(stale));
+        } finally {
+            searchIndex.finishRebuild();
+        }
+
+        //then
+        assertEquals(List.of(memberId), memberIds("새이름" + suffix));
+        assertTrue(memberIds("옛이름" + suffix).isEmpty());
+        searchIndexRebuilder.rebuild(); //다른 테스트를 위해 비운 인덱스를 다시 채운다.
+    }
+
+    private List<Long> memberIds(String q) {
+        return searchService.searchMembers(q, 10).stream()
+                .map(Member::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> itemIds(String q) {
+        return searchService.searchItems(q, 10).stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
+    }
+}
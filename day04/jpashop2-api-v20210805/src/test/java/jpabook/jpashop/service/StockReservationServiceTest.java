@@ -0,0 +1,175 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 재고 선점 동시성 테스트
+ * - 트랜잭션을 여러 스레드에서 커밋해야 하므로 클래스에 @Transactional 을 붙이지 않는다.
+ * - DB 반영 시점을 테스트가 정하도록 주기적인 반영은 사실상 끄고 flush() 를 직접 호출한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.stock.reservation.enabled=true",
+        "jpashop.stock.reservation.flush-interval-ms=3600000"})
+public class StockReservationServiceTest {
+
+    @Autowired OrderService orderService;
+    @Autowired StockReservationService stockReservationService;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 동시주문_재고초과판매_없음() throws Exception {
+        //given
+        int stockQuantity = 100;
+        int threads = 16;
+        int attempts = 400;
+        Long memberId = createMember().getId();
+        Long itemId = createBook("시골 JPA", 10000, stockQuantity).getId();
+
+        //when
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger notEnoughStock = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.order(memberId, itemId, 1);
+                    success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    notEnoughStock.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        stockReservationService.flush();
+
+        //then
+        assertEquals("재고만큼만 주문이 성공해야 한다.", stockQuantity, success.get());
+        assertEquals("나머지는 재고 부족 예외", attempts - stockQuantity, notEnoughStock.get());
+        assertEquals("DB 재고는 0", Integer.valueOf(0),
+                jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId));
+        assertEquals("주문 건수", Integer.valueOf(stockQuantity),
+                jdbcTemplate.queryForObject("select count(*) from order_item where item_id = ?", Integer.class, itemId));
+    }
+
+    @Test
+    public void 주문취소_재고반환() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+
+        //when
+        orderService.cancelOrder(orderId);
+        stockReservationService.flush();
+
+        //then
+        assertEquals("취소하면 선점한 재고가 돌아와야 한다.", 10, stockReservationService.availableQuantity(book.getId()));
+        assertEquals(Integer.valueOf(10),
+                jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId()));
+    }
+
+    @Test
+    public void 반영중_DB재고가_바뀌어도_차감량은_남는다() throws Exception {
+        //given 재고 10 중 3개 주문 (아직 DB 반영 전)
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        stockReservationService.flush();
+        orderService.order(member.getId(), book.getId(), 3);
+
+        //when 그 사이 다른 경로에서 DB 재고가 2로 줄어듦 -> 조건부 UPDATE(2 >= 3) 실패
+        jdbcTemplate.update("update item set stock_quantity = 2 where item_id = ?", book.getId());
+        stockReservationService.flush();
+
+        //then 커밋된 주문 3개는 버리지 않고 반영된다. (음수 = 초과 판매, 정산 대상)
+        assertEquals(Integer.valueOf(-1),
+                jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId()));
+        assertEquals("카운터는 DB 값에 다시 맞춘다.", 0, stockReservationService.availableQuantity(book.getId()));
+        try {
+            orderService.order(member.getId(), book.getId(), 1);
+            fail("재고가 없으면 주문할 수 없다.");
+        } catch (NotEnoughStockException e) {
+            //ok
+        }
+    }
+
+    @Test
+    public void 다시_맞추는_중에_들어온_선점과_반환을_잃지_않는다() throws Exception {
+        //given DB 재고 그대로, 선점과 반환이 계속 들어오는 카운터
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(1000, 8);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 20_000; j++) {
+                    stock.reserve(1);
+                    stock.release(1);
+                }
+            }));
+        }
+
+        //when 그 사이 계속 다시 맞춤 (DB 재고는 바뀌지 않음)
+        while (!futures.stream().allMatch(Future::isDone)) {
+            stock.resync(1000);
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(1000, stock.available());
+        assertEquals(0, stock.drainPending());
+    }
+
+    private Member createMember() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName("회원" + System.nanoTime());
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member;
+        });
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(price);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book;
+        });
+    }
+}
@@ -12,7 +12,9 @@ import javax.persistence.*;
 @NamedEntityGraph(name = "Member.all", attributeNodes =
 @NamedAttributeNode("team"))
 public class Member {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
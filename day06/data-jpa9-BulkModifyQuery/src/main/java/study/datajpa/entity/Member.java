@@ -10,7 +10,9 @@ import javax.persistence.*;
 @ToString(of = {"id", "username", "age"})
 @NamedQuery(name="Member.findByUsername", query="select m from Member m where m.username = :username")
 public class Member {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;